@@ -0,0 +1,63 @@
+package rybots.analyzer;
+
+/**
+ * A fixed width bucketed histogram, for percentiles over far more samples than we'd want to keep in memory.
+ * <p>
+ * Uses the same `BUCKET_WIDTH` as the in-game `Profiler`, so the figures from each can be compared directly.
+ * Percentiles are reported as the upper edge of the bucket they fall in, so are accurate to within a bucket.
+ */
+public class Histogram {
+
+    public static final int BUCKET_WIDTH = 100;
+
+    private final int[] buckets;
+    private long count = 0;
+    private long total = 0;
+    private int max = 0;
+
+    /**
+     * @param limit the largest value expected. Anything above lands in the final bucket, but still counts towards `max`.
+     */
+    public Histogram(int limit) {
+        buckets = new int[limit / BUCKET_WIDTH + 2];
+    }
+
+    public void add(int value) {
+        int bucket = Math.min(Math.max(value, 0) / BUCKET_WIDTH, buckets.length - 1);
+        buckets[bucket]++;
+        count++;
+        total += value;
+        max = Math.max(max, value);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * @param fraction the percentile wanted, between 0 and 1, for example .95
+     * @return the upper edge of the bucket containing that percentile, capped at `max`
+     */
+    public int percentile(double fraction) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= target) {
+                return Math.min((i + 1) * BUCKET_WIDTH - 1, max);
+            }
+        }
+        return max;
+    }
+}
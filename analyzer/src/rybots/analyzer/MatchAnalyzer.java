@@ -0,0 +1,398 @@
+package rybots.analyzer;
+
+import battlecode.common.GameConstants;
+import battlecode.common.RobotType;
+import battlecode.schema.*;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * Command line tool which reads recorded `.bc17` matches and summarises what each robot type got up to, so we can see
+ * across hundreds of games which types are running up against their bytecode limit.
+ * <p>
+ * Usage: `MatchAnalyzer [--per-robot] <output directory> <match file or directory>...`
+ * <p>
+ * Writes the following to the output directory:
+ * <ul>
+ *     <li>`rounds.csv`: for every round of every match, each team's bullets, bullet income net of spending, unit counts by type,
+ *     deaths, total bytecodes used, and how many robots used their whole bytecode limit.</li>
+ *     <li>`bytecodes.csv`: only with `--per-robot`, the bytecodes used by every robot on every round. This gets big.</li>
+ *     <li>`bytecode-percentiles.csv`: bytecode percentiles per team and robot type, across every match.</li>
+ *     <li>`actions.csv`: how many times each team and robot type performed each action, across every match.</li>
+ *     <li>`summary.json`: the result of each match, with its deaths and final bullets, plus the percentile table.</li>
+ * </ul>
+ * The percentile table is printed to the console too. Files are read one event at a time (see `MatchFile`) and only
+ * running totals are kept, so the number of games analysed is limited by disk space, not memory.
+ */
+public class MatchAnalyzer implements MatchFile.Listener {
+
+    private static final int NUM_TEAMS = 3; // Neutral, A and B, as numbered in match files.
+    private static final byte UNKNOWN = -1;
+
+    private static final double[] PERCENTILES = { .5, .9, .95, .99 };
+
+    private final boolean perRobot;
+    private final PrintWriter roundsCsv;
+    private final PrintWriter robotsCsv;
+
+    private final int numTypes = BodyType.names.length;
+    private final RobotType[] robotTypes = new RobotType[numTypes];
+
+    // Running totals across every match, keyed by team name and body type.
+    private final Map<String, Histogram> bytecodes = new TreeMap<>();
+    private final Map<String, long[]> turnsAtLimit = new TreeMap<>();
+    private final Map<String, long[]> actions = new TreeMap<>();
+    private final List<String> matchSummaries = new ArrayList<>();
+
+    // The state of the match being read.
+    private String fileName;
+    private int matchIndex;
+    private String mapName;
+    private final String[] teamNames = new String[NUM_TEAMS];
+    private final String[][] keys = new String[NUM_TEAMS][numTypes];
+    private final byte[] bodyTeams = new byte[GameConstants.MAX_ROBOT_ID + 1];
+    private final byte[] bodyTypes = new byte[GameConstants.MAX_ROBOT_ID + 1];
+    private final int[][] alive = new int[NUM_TEAMS][numTypes];
+    private final int[][] deaths = new int[NUM_TEAMS][numTypes];
+    private final float[] bullets = new float[NUM_TEAMS];
+
+    // Per round scratch, reused every round.
+    private final int[] roundDeaths = new int[NUM_TEAMS];
+    private final long[] roundBytecodes = new long[NUM_TEAMS];
+    private final int[] roundAtLimit = new int[NUM_TEAMS];
+
+    public MatchAnalyzer(File outputDirectory, boolean perRobot) throws IOException {
+        this.perRobot = perRobot;
+
+        for (int type = 0; type < numTypes; type++) {
+            try {
+                robotTypes[type] = RobotType.valueOf(BodyType.name(type));
+            }
+            catch (IllegalArgumentException e) {
+                // Bullets and trees aren't robots.
+            }
+        }
+
+        roundsCsv = new PrintWriter(new BufferedWriter(new FileWriter(new File(outputDirectory, "rounds.csv"))));
+        StringBuilder header = new StringBuilder("file,match,round,team,bullets,net_bullet_income");
+        for (int type = 0; type < numTypes; type++) {
+            if (robotTypes[type] != null) {
+                header.append(',').append(BodyType.name(type).toLowerCase());
+            }
+        }
+        roundsCsv.println(header.append(",deaths,bytecodes,robots_at_limit"));
+
+        if (perRobot) {
+            robotsCsv = new PrintWriter(new BufferedWriter(new FileWriter(new File(outputDirectory, "bytecodes.csv"))));
+            robotsCsv.println("file,match,round,team,type,robot_id,bytecodes");
+        }
+        else {
+            robotsCsv = null;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean perRobot = false;
+        List<String> paths = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--per-robot")) {
+                perRobot = true;
+            }
+            else {
+                paths.add(arg);
+            }
+        }
+        if (paths.size() < 2) {
+            System.err.println("Usage: MatchAnalyzer [--per-robot] <output directory> <match file or directory>...");
+            System.exit(1);
+        }
+
+        File outputDirectory = new File(paths.remove(0));
+        outputDirectory.mkdirs();
+
+        List<File> files = new ArrayList<>();
+        for (String path : paths) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                File[] matches = file.listFiles((dir, name) -> name.endsWith(".bc17"));
+                if (matches != null) {
+                    Arrays.sort(matches);
+                    files.addAll(Arrays.asList(matches));
+                }
+            }
+            else {
+                files.add(file);
+            }
+        }
+
+        MatchAnalyzer analyzer = new MatchAnalyzer(outputDirectory, perRobot);
+        for (File file : files) {
+            System.out.println("Reading " + file);
+            try {
+                analyzer.analyze(file);
+            }
+            catch (IOException | RuntimeException e) {
+                // One corrupt or truncated file shouldn't lose the results of all the others.
+                System.err.println("Skipping " + file + ": " + e);
+            }
+        }
+        analyzer.finish(outputDirectory);
+    }
+
+    /**
+     * Reads a single match file, adding it to the running totals.
+     *
+     * @param file the `.bc17` to read
+     * @throws IOException
+     */
+    public void analyze(File file) throws IOException {
+        fileName = file.getName();
+        matchIndex = 0;
+        MatchFile.read(file, this);
+        roundsCsv.flush();
+    }
+
+    @Override
+    public void gameHeader(GameHeader header) {
+        Arrays.fill(teamNames, "neutral");
+        for (int i = 0; i < header.teamsLength(); i++) {
+            TeamData team = header.teams(i);
+            teamNames[team.teamID()] = team.name();
+        }
+        for (int team = 0; team < NUM_TEAMS; team++) {
+            for (int type = 0; type < numTypes; type++) {
+                keys[team][type] = teamNames[team] + '\t' + BodyType.name(type);
+            }
+        }
+    }
+
+    @Override
+    public void matchHeader(MatchHeader header) {
+        matchIndex++;
+        mapName = header.map().name();
+        Arrays.fill(bodyTeams, UNKNOWN);
+        Arrays.fill(bodyTypes, UNKNOWN);
+        Arrays.fill(bullets, GameConstants.BULLETS_INITIAL_AMOUNT);
+        for (int team = 0; team < NUM_TEAMS; team++) {
+            Arrays.fill(alive[team], 0);
+            Arrays.fill(deaths[team], 0);
+        }
+        addBodies(header.map().bodies());
+    }
+
+    @Override
+    public void round(Round round) {
+        int roundNum = round.roundID();
+        Arrays.fill(roundDeaths, 0);
+        Arrays.fill(roundBytecodes, 0);
+        Arrays.fill(roundAtLimit, 0);
+
+        addBodies(round.spawnedBodies());
+
+        for (int i = 0; i < round.diedIDsLength(); i++) {
+            int id = round.diedIDs(i);
+            if (!isKnown(id)) {
+                continue;
+            }
+            int team = bodyTeams[id];
+            int type = bodyTypes[id];
+            alive[team][type]--;
+            deaths[team][type]++;
+            roundDeaths[team]++;
+            bodyTeams[id] = UNKNOWN;
+            bodyTypes[id] = UNKNOWN;
+        }
+
+        for (int i = 0; i < round.actionIDsLength(); i++) {
+            int id = round.actionIDs(i);
+            if (isKnown(id)) {
+                actionCounts(bodyTeams[id], bodyTypes[id])[round.actions(i)]++;
+            }
+        }
+
+        for (int i = 0; i < round.bytecodeIDsLength(); i++) {
+            int id = round.bytecodeIDs(i);
+            if (!isKnown(id) || robotTypes[bodyTypes[id]] == null) {
+                continue;
+            }
+            int team = bodyTeams[id];
+            int type = bodyTypes[id];
+            int used = round.bytecodesUsed(i);
+            String key = keys[team][type];
+
+            Histogram histogram = bytecodes.get(key);
+            if (histogram == null) {
+                histogram = new Histogram(robotTypes[type].bytecodeLimit);
+                bytecodes.put(key, histogram);
+                turnsAtLimit.put(key, new long[1]);
+            }
+            histogram.add(used);
+            roundBytecodes[team] += used;
+            if (used >= robotTypes[type].bytecodeLimit) {
+                turnsAtLimit.get(key)[0]++;
+                roundAtLimit[team]++;
+            }
+
+            if (perRobot) {
+                robotsCsv.println(fileName + ',' + matchIndex + ',' + roundNum + ',' + teamNames[team] + ','
+                        + BodyType.name(type) + ',' + id + ',' + used);
+            }
+        }
+
+        for (int i = 0; i < round.teamIDsLength(); i++) {
+            int team = round.teamIDs(i);
+            float teamBullets = round.teamBullets(i);
+            StringBuilder row = new StringBuilder()
+                    .append(fileName).append(',').append(matchIndex).append(',').append(roundNum).append(',')
+                    .append(teamNames[team]).append(',').append(teamBullets).append(',').append(teamBullets - bullets[team]);
+            for (int type = 0; type < numTypes; type++) {
+                if (robotTypes[type] != null) {
+                    row.append(',').append(alive[team][type]);
+                }
+            }
+            row.append(',').append(roundDeaths[team]).append(',').append(roundBytecodes[team]).append(',').append(roundAtLimit[team]);
+            roundsCsv.println(row);
+            bullets[team] = teamBullets;
+        }
+    }
+
+    @Override
+    public void matchFooter(MatchFooter footer) {
+        StringBuilder json = new StringBuilder()
+                .append("    {\"file\": ").append(quote(fileName))
+                .append(", \"match\": ").append(matchIndex)
+                .append(", \"map\": ").append(quote(mapName))
+                .append(", \"winner\": ").append(quote(teamNames[footer.winner()]))
+                .append(", \"rounds\": ").append(footer.totalRounds())
+                .append(", \"teams\": {");
+        for (int team = 1; team < NUM_TEAMS; team++) {
+            json.append(team > 1 ? ", " : "").append(quote(teamNames[team]))
+                    .append(": {\"bullets\": ").append(bullets[team]).append(", \"deaths\": {");
+            boolean first = true;
+            for (int type = 0; type < numTypes; type++) {
+                if (robotTypes[type] != null) {
+                    json.append(first ? "" : ", ").append(quote(BodyType.name(type))).append(": ").append(deaths[team][type]);
+                    first = false;
+                }
+            }
+            json.append("}}");
+        }
+        matchSummaries.add(json.append("}}").toString());
+    }
+
+    /**
+     * Writes out the tables built up across every match, and prints the percentile table.
+     *
+     * @param outputDirectory where to write them
+     * @throws IOException
+     */
+    public void finish(File outputDirectory) throws IOException {
+        roundsCsv.close();
+        if (robotsCsv != null) {
+            robotsCsv.close();
+        }
+
+        List<String> percentileRows = new ArrayList<>();
+        try (PrintWriter csv = new PrintWriter(new FileWriter(new File(outputDirectory, "bytecode-percentiles.csv")))) {
+            csv.println("team,type,turns,mean,p50,p90,p95,p99,max,limit,turns_at_limit,pct_at_limit");
+            System.out.println();
+            System.out.println(String.format("%-20s %-10s %9s %7s %6s %6s %6s %6s %6s %6s %8s",
+                    "team", "type", "turns", "mean", "p50", "p90", "p95", "p99", "max", "limit", "at limit"));
+
+            for (Map.Entry<String, Histogram> entry : bytecodes.entrySet()) {
+                String[] key = entry.getKey().split("\t");
+                Histogram histogram = entry.getValue();
+                int limit = RobotType.valueOf(key[1]).bytecodeLimit;
+                long atLimit = turnsAtLimit.get(entry.getKey())[0];
+                double pctAtLimit = 100.0 * atLimit / histogram.getCount();
+
+                StringBuilder row = new StringBuilder(key[0]).append(',').append(key[1]).append(',')
+                        .append(histogram.getCount()).append(',').append(String.format("%.1f", histogram.getMean()));
+                for (double percentile : PERCENTILES) {
+                    row.append(',').append(histogram.percentile(percentile));
+                }
+                row.append(',').append(histogram.getMax()).append(',').append(limit).append(',').append(atLimit)
+                        .append(',').append(String.format("%.2f", pctAtLimit));
+                csv.println(row);
+
+                System.out.println(String.format("%-20s %-10s %9d %7.0f %6d %6d %6d %6d %6d %6d %7.2f%%",
+                        key[0], key[1], histogram.getCount(), histogram.getMean(),
+                        histogram.percentile(.5), histogram.percentile(.9), histogram.percentile(.95), histogram.percentile(.99),
+                        histogram.getMax(), limit, pctAtLimit));
+
+                percentileRows.add("    {\"team\": " + quote(key[0]) + ", \"type\": " + quote(key[1])
+                        + ", \"turns\": " + histogram.getCount()
+                        + ", \"p50\": " + histogram.percentile(.5) + ", \"p90\": " + histogram.percentile(.9)
+                        + ", \"p95\": " + histogram.percentile(.95) + ", \"p99\": " + histogram.percentile(.99)
+                        + ", \"max\": " + histogram.getMax() + ", \"limit\": " + limit
+                        + ", \"turns_at_limit\": " + atLimit + "}");
+            }
+        }
+
+        try (PrintWriter csv = new PrintWriter(new FileWriter(new File(outputDirectory, "actions.csv")))) {
+            csv.println("team,type,action,count");
+            for (Map.Entry<String, long[]> entry : actions.entrySet()) {
+                String[] key = entry.getKey().split("\t");
+                long[] counts = entry.getValue();
+                for (int action = 0; action < counts.length; action++) {
+                    if (counts[action] > 0) {
+                        csv.println(key[0] + ',' + key[1] + ',' + Action.name(action) + ',' + counts[action]);
+                    }
+                }
+            }
+        }
+
+        try (PrintWriter json = new PrintWriter(new FileWriter(new File(outputDirectory, "summary.json")))) {
+            json.println("{");
+            json.println("  \"matches\": [");
+            json.println(String.join(",\n", matchSummaries));
+            json.println("  ],");
+            json.println("  \"bytecodes\": [");
+            json.println(String.join(",\n", percentileRows));
+            json.println("  ]");
+            json.println("}");
+        }
+
+        System.out.println();
+        System.out.println("Analysed " + matchSummaries.size() + " matches, results written to " + outputDirectory);
+    }
+
+    private void addBodies(SpawnedBodyTable bodies) {
+        if (bodies == null) {
+            return;
+        }
+        for (int i = 0; i < bodies.robotIDsLength(); i++) {
+            int id = bodies.robotIDs(i);
+            if (id < 0 || id >= bodyTypes.length) {
+                continue;
+            }
+            int team = bodies.teamIDs(i);
+            int type = bodies.types(i);
+            bodyTeams[id] = (byte) team;
+            bodyTypes[id] = (byte) type;
+            alive[team][type]++;
+        }
+    }
+
+    private boolean isKnown(int id) {
+        return id >= 0 && id < bodyTypes.length && bodyTypes[id] != UNKNOWN;
+    }
+
+    private long[] actionCounts(int team, int type) {
+        String key = keys[team][type];
+        long[] counts = actions.get(key);
+        if (counts == null) {
+            counts = new long[Action.names.length];
+            actions.put(key, counts);
+        }
+        return counts;
+    }
+
+    private static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        return '"' + value.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+    }
+}
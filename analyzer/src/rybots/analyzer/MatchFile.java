@@ -0,0 +1,93 @@
+package rybots.analyzer;
+
+import battlecode.schema.*;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads the events out of a `.bc17` match file one at a time.
+ * <p>
+ * A `.bc17` is a gzipped flatbuffer, which can't be parsed until it has been decompressed in full. Rather than
+ * inflating it onto the heap, it's streamed out to a temporary file which is then memory mapped, so the OS pages it
+ * in as events are read and a long game costs no more heap than a short one. Each event is read into the same
+ * reusable table objects, so nothing is kept around once the listener has seen it.
+ */
+public class MatchFile {
+
+    /**
+     * Receives the events of a game in order. Tables passed in are reused for the next event, so must not be kept.
+     */
+    public interface Listener {
+        void gameHeader(GameHeader header);
+        void matchHeader(MatchHeader header);
+        void round(Round round);
+        void matchFooter(MatchFooter footer);
+    }
+
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Reads every event in a match file, passing each one to the listener.
+     *
+     * @param file     the `.bc17` to read
+     * @param listener what to tell about each event
+     * @throws IOException if the file can't be read or decompressed
+     */
+    public static void read(File file, Listener listener) throws IOException {
+        File inflated = File.createTempFile("match-", ".fb");
+        try {
+            try (InputStream in = new GZIPInputStream(new FileInputStream(file), COPY_BUFFER_SIZE);
+                 OutputStream out = new BufferedOutputStream(new FileOutputStream(inflated), COPY_BUFFER_SIZE)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+            }
+
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(inflated.toPath(), StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            GameWrapper game = GameWrapper.getRootAsGameWrapper(buffer);
+            EventWrapper event = new EventWrapper();
+            GameHeader gameHeader = new GameHeader();
+            MatchHeader matchHeader = new MatchHeader();
+            Round round = new Round();
+            MatchFooter matchFooter = new MatchFooter();
+
+            int events = game.eventsLength();
+            for (int i = 0; i < events; i++) {
+                game.events(event, i);
+                switch (event.eType()) {
+                    case Event.GameHeader:
+                        event.e(gameHeader);
+                        listener.gameHeader(gameHeader);
+                        break;
+                    case Event.MatchHeader:
+                        event.e(matchHeader);
+                        listener.matchHeader(matchHeader);
+                        break;
+                    case Event.Round:
+                        event.e(round);
+                        listener.round(round);
+                        break;
+                    case Event.MatchFooter:
+                        event.e(matchFooter);
+                        listener.matchFooter(matchFooter);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        finally {
+            inflated.delete();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package rybots.bench;
+
+import battlecode.common.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * A RobotController which answers just enough for the helpers being benchmarked, without an engine behind it.
+ * <p>
+ * The robot stands still in an empty, open field, with the map's archons a fixed distance away. Moves always succeed
+ * but don't actually move the robot, so every benchmark iteration starts from the same state. Directions within
+ * `blockedDegrees` of east are reported as blocked, so movement helpers can be made to search for a way round.
+ * `canSenseAllOfCircle` checks the circle against the sensor range, and sensing a circle beyond it throws, as the
+ * engine does.
+ * <p>
+ * Everything else returns zero, false or null.
+ */
+public class StubRobotController implements InvocationHandler {
+
+    private final RobotType type;
+    private final MapLocation location;
+    private final int[] broadcasts = new int[GameConstants.BROADCAST_MAX_CHANNELS];
+    private float blockedDegrees = 0;
+
+    private StubRobotController(RobotType type, MapLocation location) {
+        this.type = type;
+        this.location = location;
+    }
+
+    /**
+     * @param type     the type of robot to pretend to be
+     * @param location where the robot is standing
+     * @return a RobotController backed by a new stub
+     */
+    public static RobotController create(RobotType type, MapLocation location) {
+        return create(type, location, 0);
+    }
+
+    /**
+     * @param type           the type of robot to pretend to be
+     * @param location       where the robot is standing
+     * @param blockedDegrees directions within this many degrees of east can't be moved in
+     * @return a RobotController backed by a new stub
+     */
+    public static RobotController create(RobotType type, MapLocation location, float blockedDegrees) {
+        StubRobotController stub = new StubRobotController(type, location);
+        stub.blockedDegrees = blockedDegrees;
+        return (RobotController) Proxy.newProxyInstance(StubRobotController.class.getClassLoader(),
+                new Class<?>[] { RobotController.class }, stub);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "getType":
+                return type;
+            case "getTeam":
+                return Team.A;
+            case "getID":
+                return 10000;
+            case "getLocation":
+                return location;
+            case "getRoundNum":
+                return 1;
+            case "getTeamBullets":
+                return GameConstants.BULLETS_INITIAL_AMOUNT;
+            case "getInitialArchonLocations":
+                return new MapLocation[] {
+                        new MapLocation(location.x + (args[0] == Team.A ? -5 : 40), location.y)
+                };
+            case "readBroadcast":
+            case "readBroadcastInt":
+                return broadcasts[(Integer) args[0]];
+            case "broadcast":
+            case "broadcastInt":
+                broadcasts[(Integer) args[0]] = (Integer) args[1];
+                return null;
+            case "canMove":
+                return !isBlocked((Direction) args[0]);
+            case "canSenseAllOfCircle":
+                return location.distanceTo((MapLocation) args[0]) + (Float) args[1] <= type.sensorRadius;
+            case "onTheMap":
+            case "isCircleOccupiedExceptByThisRobot":
+            case "isCircleOccupied":
+                MapLocation center = (MapLocation) args[0];
+                float radius = args.length > 1 ? (Float) args[1] : 0;
+                if (location.distanceTo(center) + radius > type.sensorRadius) {
+                    throw new GameActionException(GameActionExceptionType.OUT_OF_RANGE,
+                            "Target circle not completely within sensor range");
+                }
+                return method.getName().equals("onTheMap");
+            case "senseNearbyRobots":
+                return new RobotInfo[0];
+            case "senseNearbyTrees":
+                return new TreeInfo[0];
+            case "senseNearbyBullets":
+                return new BulletInfo[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "StubRobotController(" + type + " at " + location + ")";
+            default:
+                break;
+        }
+
+        Class<?> returnType = method.getReturnType();
+        if (returnType == boolean.class) {
+            return false;
+        }
+        if (returnType == int.class) {
+            return 0;
+        }
+        if (returnType == float.class) {
+            return 0f;
+        }
+        return null;
+    }
+
+    private boolean isBlocked(Direction direction) {
+        return blockedDegrees > 0 && Math.abs(direction.getAngleDegrees()) < blockedDegrees;
+    }
+}
@@ -0,0 +1,127 @@
+package rybots.bot;
+
+import battlecode.common.*;
+import org.openjdk.jmh.annotations.*;
+import rybots.bench.StubRobotController;
+import rybots.utils.BytecodeCounter;
+import rybots.utils.EvasionPlanner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the geometry and movement helpers every bot leans on each turn.
+ * <p>
+ * These live in `rybots.bot` so they can reach the package-private and protected helpers directly. Times are for
+ * the JVM, not the engine, so they won't match bytecode counts exactly, but a change which makes a helper slower or
+ * makes it allocate more here will cost bytecodes in a match too. Run with `./gradlew benchmark`, which also reports
+ * allocation through the gc profiler and compares the results against the stored baselines.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HelperBenchmarks {
+
+    private static final MapLocation CENTER = new MapLocation(100, 100);
+
+    private Soldier soldier;
+    private Soldier blockedSoldier;
+    private Gardener gardener;
+    private EvasionPlanner evasionPlanner;
+
+    private MapLocation nearbySite;
+    private MapLocation distantSite;
+    private Direction east;
+    private BulletInfo[] threateningBullets;
+
+    @Setup
+    public void setUp() {
+        soldier = new Soldier(StubRobotController.create(RobotType.SOLDIER, CENTER));
+        soldier.newTurn();
+
+        // East, and everything within 100 degrees of it, is blocked, so tryMove has to search most of the way round.
+        blockedSoldier = new Soldier(StubRobotController.create(RobotType.SOLDIER, CENTER, 100));
+        blockedSoldier.newTurn();
+
+        gardener = new Gardener(StubRobotController.create(RobotType.GARDENER, CENTER));
+        gardener.newTurn();
+
+        nearbySite = new MapLocation(CENTER.x + 2, CENTER.y);
+        distantSite = new MapLocation(CENTER.x + 6, CENTER.y);
+        east = Direction.getEast();
+
+        // There's no engine to count bytecodes, so give the planner the whole turn to work with.
+        BytecodeCounter.debug_pinBytecodesLeft(RobotType.SOLDIER.bytecodeLimit, RobotType.SOLDIER.bytecodeLimit);
+        evasionPlanner = new EvasionPlanner(StubRobotController.create(RobotType.SOLDIER, CENTER), 0);
+        threateningBullets = firefight();
+    }
+
+    /**
+     * The bullets a soldier might see in a firefight, filtered and ordered as `TurnContext.getThreateningBullets`
+     * would. Three enemy soldiers have each fired a triad at it, from the east, the north west and the south, and
+     * there are stray shots flying past and away from it.
+     */
+    private static BulletInfo[] firefight() {
+        float speed = RobotType.SOLDIER.bulletSpeed;
+        float damage = RobotType.SOLDIER.attackPower;
+        float spread = (float) Math.toRadians(GameConstants.TRIAD_SPREAD_DEGREES);
+
+        List<BulletInfo> sensed = new ArrayList<>();
+        float[][] shooters = { { 5, 0 }, { -3.5f, 3.5f }, { 0.5f, -4 } };
+        for (float[] shooter : shooters) {
+            MapLocation from = CENTER.translate(shooter[0], shooter[1]);
+            Direction aim = from.directionTo(CENTER);
+            for (int i = -1; i <= 1; i++) {
+                sensed.add(new BulletInfo(sensed.size(), from, aim.rotateLeftRads(i * spread), speed, damage));
+            }
+        }
+        sensed.add(new BulletInfo(sensed.size(), CENTER.translate(-6, 2), Direction.getEast(), speed, damage));
+        sensed.add(new BulletInfo(sensed.size(), CENTER.translate(2, 5), Direction.getSouth(), speed, damage));
+        sensed.add(new BulletInfo(sensed.size(), CENTER.translate(1.5f, 1.5f), Direction.getNorth(), speed, damage));
+        sensed.add(new BulletInfo(sensed.size(), CENTER.translate(-2, -2), Direction.getSouth(), speed, damage));
+
+        sensed.sort((a, b) -> Float.compare(CENTER.distanceTo(a.location), CENTER.distanceTo(b.location)));
+        sensed.removeIf(bullet -> !EvasionPlanner.threatens(bullet, CENTER, RobotType.SOLDIER));
+        return sensed.toArray(new BulletInfo[sensed.size()]);
+    }
+
+    @Benchmark
+    public List<MapLocation> getSurroundingBuildLocations() {
+        return BaseBot.getSurroundingBuildLocations(CENTER, GameConstants.BULLET_TREE_RADIUS, 2.01f, 0.5f);
+    }
+
+    @Benchmark
+    public List<MapLocation> getNSurroundingLocations() {
+        return BaseBot.getNSurroundingLocations(CENTER, 12, 5, 0.5f);
+    }
+
+    @Benchmark
+    public boolean tryMoveOpen() throws GameActionException {
+        return soldier.tryMove(east);
+    }
+
+    @Benchmark
+    public boolean tryMoveBlocked() throws GameActionException {
+        return blockedSoldier.tryMove(east);
+    }
+
+    @Benchmark
+    public boolean evade() throws GameActionException {
+        return evasionPlanner.evade(CENTER, threateningBullets);
+    }
+
+    @Benchmark
+    public boolean isSuitableLocationInRange() throws GameActionException {
+        return gardener.isSuitableLocation(nearbySite, -2.0f);
+    }
+
+    @Benchmark
+    public boolean isSuitableLocationOutOfRange() throws GameActionException {
+        // The engine would throw if the circle isn't entirely within sensor range, so this should be turned away early.
+        return gardener.isSuitableLocation(distantSite, -2.0f);
+    }
+}
@@ -0,0 +1,274 @@
+package rybots.bytecodes;
+
+import battlecode.common.RobotType;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.tree.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line tool which estimates, from the compiled classes alone, how many bytecodes each bot spends on a turn,
+ * and fails if any bot has got noticeably more expensive than the stored baseline.
+ * <p>
+ * Usage: `BytecodeEstimator [--update] [--tolerance 0.1] [--loop-iterations 4,8] <classes directory> <baseline file>
+ * [<method costs file>...]`
+ * <p>
+ * A bot's turn is `newTurn`, then the phase scheduler in `takeTurn`, then each of the phases it registers in its
+ * constructor. Each of these is costed by `CostAnalysis`, and the report lists every phase beside the estimate it was
+ * registered with, so phases which have outgrown their estimate stand out. Loops run `--loop-iterations` times, in
+ * the typical and worst cases respectively.
+ * <p>
+ * Calls into the engine and the Java library are costed from the engine's `MethodCosts.txt`, when it's on the
+ * classpath, and then the method costs files given, which take precedence.
+ * <p>
+ * The typical and worst case turn costs for each bot are compared against the baseline, and if either has risen by
+ * more than the tolerance, this exits with status 1. It also exits with status 1 if there's no baseline, rather than
+ * quietly passing. With `--update`, the estimates are stored as the new baseline instead.
+ */
+public class BytecodeEstimator {
+
+    private static final String BASE_BOT = "rybots/bot/BaseBot";
+    private static final String REGISTER_PHASE = "registerPhase";
+
+    /**
+     * A phase registered by a bot, and the method which runs it.
+     */
+    private static final class Phase {
+        final String name;
+        final int registeredCost;
+        final Handle implementation;
+
+        Phase(String name, int registeredCost, Handle implementation) {
+            this.name = name;
+            this.registeredCost = registeredCost;
+            this.implementation = implementation;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean update = false;
+        double tolerance = 0.1;
+        int typicalIterations = 4;
+        int worstIterations = 8;
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--update":
+                    update = true;
+                    break;
+                case "--tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "--loop-iterations":
+                    String[] iterations = args[++i].split(",");
+                    typicalIterations = Integer.parseInt(iterations[0].trim());
+                    worstIterations = Integer.parseInt(iterations[1].trim());
+                    break;
+                default:
+                    files.add(args[i]);
+                    break;
+            }
+        }
+        if (files.size() < 2) {
+            System.err.println("Usage: BytecodeEstimator [--update] [--tolerance 0.1] [--loop-iterations 4,8] "
+                    + "<classes directory> <baseline file> [<method costs file>...]");
+            System.exit(2);
+        }
+
+        MethodCosts methodCosts = new MethodCosts();
+        if (!methodCosts.loadEngineCosts()) {
+            System.out.println("The engine's MethodCosts.txt isn't on the classpath, so only the given method costs are used.");
+        }
+        for (String file : files.subList(2, files.size())) {
+            methodCosts.load(new File(file));
+        }
+
+        Map<String, ClassNode> classes = loadClasses(new File(files.get(0)));
+        CostAnalysis analysis = new CostAnalysis(classes, methodCosts, typicalIterations, worstIterations);
+
+        Map<String, Long> estimates = new TreeMap<>();
+        for (ClassNode bot : bots(classes, analysis)) {
+            String name = bot.name.substring(bot.name.lastIndexOf('/') + 1);
+            CostAnalysis.Estimate turn = report(bot, analysis);
+            estimates.put(name + ".typical", Math.round(turn.typical));
+            estimates.put(name + ".worst", Math.round(turn.worst));
+        }
+
+        File baseline = new File(files.get(1));
+        if (update) {
+            writeBaseline(baseline, estimates);
+            System.out.println("Stored these estimates as the baseline in " + baseline.getPath());
+            return;
+        }
+        if (!baseline.exists()) {
+            System.out.println();
+            System.out.println("There's no baseline in " + baseline.getPath() + " to compare against. Store one with --update.");
+            System.exit(1);
+        }
+
+        List<String> regressions = compare(readBaseline(baseline), estimates, tolerance);
+        if (!regressions.isEmpty()) {
+            System.out.println();
+            System.out.println("Estimated bytecode costs have risen by more than " + Math.round(tolerance * 100) + "%:");
+            for (String regression : regressions) {
+                System.out.println("  " + regression);
+            }
+            System.out.println("If this is expected, store new estimates with --update.");
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, ClassNode> loadClasses(File directory) throws IOException {
+        Map<String, ClassNode> classes = new HashMap<>();
+        List<Path> files;
+        try (Stream<Path> paths = Files.walk(directory.toPath())) {
+            files = paths.filter(path -> path.toString().endsWith(".class")).collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            ClassNode node = new ClassNode();
+            new ClassReader(Files.readAllBytes(file)).accept(node, ClassReader.SKIP_DEBUG);
+            classes.put(node.name, node);
+        }
+        return classes;
+    }
+
+    /**
+     * @return every concrete bot, in name order
+     */
+    private static List<ClassNode> bots(Map<String, ClassNode> classes, CostAnalysis analysis) {
+        return classes.values().stream()
+                .filter(c -> !c.name.equals(BASE_BOT) && analysis.isSubclass(c.name, BASE_BOT))
+                .filter(c -> (c.access & org.objectweb.asm.Opcodes.ACC_ABSTRACT) == 0)
+                .sorted(Comparator.comparing(c -> c.name))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Finds the phases a bot registers, by looking for calls to `registerPhase` in its constructors. The name and
+     * estimated cost are the last string and int constants pushed before the call, and the phase itself is the
+     * lambda or method reference.
+     */
+    private static List<Phase> phases(ClassNode bot) {
+        List<Phase> phases = new ArrayList<>();
+        for (MethodNode method : bot.methods) {
+            if (!method.name.equals("<init>")) {
+                continue;
+            }
+            String name = null;
+            int registeredCost = 0;
+            Handle implementation = null;
+            for (AbstractInsnNode insn : method.instructions.toArray()) {
+                Integer constant = CostAnalysis.intConstant(insn);
+                if (constant != null) {
+                    registeredCost = constant;
+                }
+                else if (insn instanceof LdcInsnNode && ((LdcInsnNode) insn).cst instanceof String) {
+                    name = (String) ((LdcInsnNode) insn).cst;
+                }
+                else if (insn instanceof InvokeDynamicInsnNode) {
+                    Object[] bootstrapArgs = ((InvokeDynamicInsnNode) insn).bsmArgs;
+                    implementation = bootstrapArgs.length > 1 && bootstrapArgs[1] instanceof Handle ? (Handle) bootstrapArgs[1] : null;
+                }
+                else if (insn instanceof MethodInsnNode && ((MethodInsnNode) insn).name.equals(REGISTER_PHASE)) {
+                    if (name != null && implementation != null) {
+                        phases.add(new Phase(name, registeredCost, implementation));
+                    }
+                    name = null;
+                    implementation = null;
+                }
+            }
+        }
+        return phases;
+    }
+
+    /**
+     * Prints the cost of each part of a bot's turn.
+     *
+     * @return the cost of the whole turn
+     */
+    private static CostAnalysis.Estimate report(ClassNode bot, CostAnalysis analysis) {
+        String name = bot.name.substring(bot.name.lastIndexOf('/') + 1);
+        String limit = "";
+        try {
+            limit = " (limit " + RobotType.valueOf(name.toUpperCase()).bytecodeLimit + ")";
+        }
+        catch (IllegalArgumentException e) {
+            // Not named after a robot type.
+        }
+
+        System.out.println();
+        System.out.println(name + limit);
+        System.out.println(String.format("  %-28s %10s %10s %10s", "", "registered", "typical", "worst"));
+
+        CostAnalysis.Estimate turn = CostAnalysis.Estimate.ZERO;
+        for (String method : new String[] { "newTurn", "takeTurn" }) {
+            CostAnalysis.Estimate estimate = orZero(analysis.estimate(bot.name, bot.name, method, "()V"));
+            System.out.println(String.format("  %-28s %10s %10.0f %10.0f", method, "", estimate.typical, estimate.worst));
+            turn = turn.plus(estimate);
+        }
+        for (Phase phase : phases(bot)) {
+            Handle handle = phase.implementation;
+            CostAnalysis.Estimate estimate = orZero(analysis.estimate(bot.name, handle.getOwner(), handle.getName(), handle.getDesc()));
+            System.out.println(String.format("  %-28s %10d %10.0f %10.0f%s", phase.name, phase.registeredCost,
+                    estimate.typical, estimate.worst, estimate.typical > phase.registeredCost ? "  over estimate" : ""));
+            turn = turn.plus(estimate);
+        }
+        System.out.println(String.format("  %-28s %10s %10.0f %10.0f", "turn", "", turn.typical, turn.worst));
+        return turn;
+    }
+
+    private static CostAnalysis.Estimate orZero(CostAnalysis.Estimate estimate) {
+        return estimate == null ? CostAnalysis.Estimate.ZERO : estimate;
+    }
+
+    /**
+     * @return a description of every estimate which has risen by more than the tolerance
+     */
+    private static List<String> compare(Map<String, Long> baseline, Map<String, Long> estimates, double tolerance) {
+        List<String> regressions = new ArrayList<>();
+        System.out.println();
+        for (Map.Entry<String, Long> estimate : estimates.entrySet()) {
+            Long was = baseline.get(estimate.getKey());
+            long now = estimate.getValue();
+            if (was == null) {
+                System.out.println(String.format("%-28s %10d  (new)", estimate.getKey(), now));
+                continue;
+            }
+            double change = was == 0 ? 0 : (now - was) / (double) was;
+            System.out.println(String.format("%-28s %10d  (%+5.1f%%)", estimate.getKey(), now, change * 100));
+            if (change > tolerance) {
+                regressions.add(String.format("%s is %d, up %.1f%% from %d", estimate.getKey(), now, change * 100, was));
+            }
+        }
+        return regressions;
+    }
+
+    private static Map<String, Long> readBaseline(File file) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        Map<String, Long> baseline = new HashMap<>();
+        for (String key : properties.stringPropertyNames()) {
+            baseline.put(key, Long.parseLong(properties.getProperty(key).trim()));
+        }
+        return baseline;
+    }
+
+    private static void writeBaseline(File file, Map<String, Long> estimates) throws IOException {
+        try (PrintWriter out = new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            out.println("# Estimated bytecodes per turn for each bot, written by BytecodeEstimator.");
+            out.println("# Regenerate with `gradle estimateBytecodes -PupdateBytecodeBaseline` when a rise is expected.");
+            for (Map.Entry<String, Long> estimate : estimates.entrySet()) {
+                out.println(estimate.getKey() + "=" + estimate.getValue());
+            }
+        }
+    }
+}
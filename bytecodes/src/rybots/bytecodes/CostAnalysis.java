@@ -0,0 +1,467 @@
+package rybots.bytecodes;
+
+import battlecode.common.GameConstants;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.*;
+
+import java.util.*;
+
+/**
+ * Estimates how many bytecodes a method costs the engine, following calls into our own code.
+ * <p>
+ * Each method is split into basic blocks, costed at one bytecode per instruction plus whatever the engine charges
+ * for the calls in it (see `MethodCosts`). Loops are collapsed innermost first into a single block costing the
+ * body times a fixed number of iterations, which leaves a graph without cycles to walk from the entry block:
+ * <ul>
+ *     <li>The <b>worst</b> case takes the most expensive branch everywhere, including into exception handlers,
+ *     which also pay the engine's penalty for a thrown GameActionException.</li>
+ *     <li>The <b>typical</b> case averages the branches at each fork, runs loops fewer times, and assumes nothing
+ *     throws.</li>
+ * </ul>
+ * Neither is a bound on what the engine will count, since loop counts depend on what the robot can see, but both
+ * move when the code does, which is what the regression gate needs.
+ * <p>
+ * Calls to `debug_` methods are free, as the engine skips them in tournaments. A call to one of our methods on a bot
+ * is resolved against the bot being analysed, so overrides are followed, and recursive calls count as free.
+ */
+class CostAnalysis {
+
+    /**
+     * A pair of cost estimates, in bytecodes.
+     */
+    static final class Estimate {
+        static final Estimate ZERO = new Estimate(0, 0);
+
+        final double typical;
+        final double worst;
+
+        Estimate(double typical, double worst) {
+            this.typical = typical;
+            this.worst = worst;
+        }
+
+        Estimate plus(Estimate other) {
+            return new Estimate(typical + other.typical, worst + other.worst);
+        }
+    }
+
+    private final Map<String, ClassNode> classes;
+    private final MethodCosts methodCosts;
+    private final int typicalIterations;
+    private final int worstIterations;
+
+    private final Map<String, Estimate> estimates = new HashMap<>();
+    private final Set<String> inProgress = new HashSet<>();
+
+    /**
+     * @param classes           our classes, keyed by internal name
+     * @param methodCosts       the costs of calls to code outside `classes`
+     * @param typicalIterations how many times a loop runs in the typical case
+     * @param worstIterations   how many times a loop runs in the worst case
+     */
+    CostAnalysis(Map<String, ClassNode> classes, MethodCosts methodCosts, int typicalIterations, int worstIterations) {
+        this.classes = classes;
+        this.methodCosts = methodCosts;
+        this.typicalIterations = typicalIterations;
+        this.worstIterations = worstIterations;
+    }
+
+    /**
+     * @param context the internal name of the bot being analysed, used to resolve calls on `this`
+     * @param owner   the internal name of the class the method is called on
+     * @param name    the method's name
+     * @param desc    the method's descriptor
+     * @return the estimated cost of the method, or null if it isn't one of ours or has no body
+     */
+    Estimate estimate(String context, String owner, String name, String desc) {
+        ClassNode declaringClass = null;
+        MethodNode method = null;
+        // Look from the bot down if the call could be dispatched to one of its overrides.
+        for (String start : isSubclass(context, owner) ? new String[] { context, owner } : new String[] { owner }) {
+            for (ClassNode c = classes.get(start); c != null && method == null; c = classes.get(c.superName)) {
+                for (MethodNode m : c.methods) {
+                    if (m.name.equals(name) && m.desc.equals(desc)) {
+                        declaringClass = c;
+                        method = m;
+                        break;
+                    }
+                }
+            }
+            if (method != null) {
+                break;
+            }
+        }
+        if (method == null || (method.access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0) {
+            return null;
+        }
+
+        String key = context + " " + declaringClass.name + "." + name + desc;
+        Estimate estimate = estimates.get(key);
+        if (estimate != null) {
+            return estimate;
+        }
+        if (!inProgress.add(key)) {
+            return Estimate.ZERO;
+        }
+        estimate = analyse(context, method);
+        inProgress.remove(key);
+        estimates.put(key, estimate);
+        return estimate;
+    }
+
+    /**
+     * @return true if `subclass` is `superclass`, or extends it
+     */
+    boolean isSubclass(String subclass, String superclass) {
+        for (ClassNode c = classes.get(subclass); c != null; c = classes.get(c.superName)) {
+            if (c.name.equals(superclass)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // A single method
+
+    private Estimate analyse(String context, MethodNode method) {
+        AbstractInsnNode[] insns = method.instructions.toArray();
+        if (insns.length == 0) {
+            return Estimate.ZERO;
+        }
+
+        // Every label starts a block, as does whatever follows a jump, return or throw.
+        int[] blockOf = new int[insns.length];
+        List<Integer> starts = new ArrayList<>();
+        for (int i = 0; i < insns.length; i++) {
+            boolean leader = i == 0 || insns[i] instanceof LabelNode || endsBlock(insns[i - 1]);
+            if (leader) {
+                starts.add(i);
+            }
+            blockOf[i] = starts.size() - 1;
+        }
+        int numBlocks = starts.size();
+
+        double[] typicalCosts = new double[numBlocks];
+        double[] worstCosts = new double[numBlocks];
+        List<Set<Integer>> successors = new ArrayList<>();
+        List<Set<Integer>> handlers = new ArrayList<>();
+        for (int b = 0; b < numBlocks; b++) {
+            successors.add(new LinkedHashSet<>());
+            handlers.add(new LinkedHashSet<>());
+        }
+
+        for (int i = 0; i < insns.length; i++) {
+            AbstractInsnNode insn = insns[i];
+            int block = blockOf[i];
+            if (insn.getOpcode() >= 0) {
+                Estimate cost = instructionCost(context, insns, i);
+                typicalCosts[block] += cost.typical;
+                worstCosts[block] += cost.worst;
+            }
+
+            boolean lastInBlock = i + 1 == insns.length || blockOf[i + 1] != block;
+            if (!lastInBlock) {
+                continue;
+            }
+            if (insn instanceof JumpInsnNode) {
+                successors.get(block).add(blockOf[method.instructions.indexOf(((JumpInsnNode) insn).label)]);
+            }
+            else if (insn instanceof TableSwitchInsnNode) {
+                TableSwitchInsnNode tableSwitch = (TableSwitchInsnNode) insn;
+                successors.get(block).add(blockOf[method.instructions.indexOf(tableSwitch.dflt)]);
+                for (LabelNode label : tableSwitch.labels) {
+                    successors.get(block).add(blockOf[method.instructions.indexOf(label)]);
+                }
+            }
+            else if (insn instanceof LookupSwitchInsnNode) {
+                LookupSwitchInsnNode lookupSwitch = (LookupSwitchInsnNode) insn;
+                successors.get(block).add(blockOf[method.instructions.indexOf(lookupSwitch.dflt)]);
+                for (LabelNode label : lookupSwitch.labels) {
+                    successors.get(block).add(blockOf[method.instructions.indexOf(label)]);
+                }
+            }
+            if (!endsBlock(insn) || (insn instanceof JumpInsnNode && insn.getOpcode() != Opcodes.GOTO)) {
+                if (i + 1 < insns.length) {
+                    successors.get(block).add(blockOf[i + 1]);
+                }
+            }
+        }
+
+        // Any block in a try can end up in its handler, which pays the penalty if it catches an engine exception.
+        for (TryCatchBlockNode tryCatch : method.tryCatchBlocks) {
+            int handler = blockOf[method.instructions.indexOf(tryCatch.handler)];
+            int first = blockOf[method.instructions.indexOf(tryCatch.start)];
+            int last = blockOf[method.instructions.indexOf(tryCatch.end)];
+            for (int b = first; b < last; b++) {
+                handlers.get(b).add(handler);
+            }
+            if (catchesEngineExceptions(tryCatch.type)) {
+                worstCosts[handler] += GameConstants.EXCEPTION_BYTECODE_PENALTY;
+            }
+        }
+
+        List<Set<Integer>> withHandlers = new ArrayList<>();
+        for (int b = 0; b < numBlocks; b++) {
+            Set<Integer> edges = new LinkedHashSet<>(successors.get(b));
+            edges.addAll(handlers.get(b));
+            withHandlers.add(edges);
+        }
+
+        return new Estimate(
+                new Graph(typicalCosts, successors, false).cost(typicalIterations),
+                new Graph(worstCosts, withHandlers, true).cost(worstIterations));
+    }
+
+    private static boolean endsBlock(AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+        return insn instanceof JumpInsnNode
+                || insn instanceof TableSwitchInsnNode
+                || insn instanceof LookupSwitchInsnNode
+                || (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN)
+                || opcode == Opcodes.ATHROW;
+    }
+
+    private static boolean catchesEngineExceptions(String type) {
+        return type == null
+                || type.equals("battlecode/common/GameActionException")
+                || type.equals("java/lang/Exception")
+                || type.equals("java/lang/Throwable");
+    }
+
+    private Estimate instructionCost(String context, AbstractInsnNode[] insns, int index) {
+        AbstractInsnNode insn = insns[index];
+        switch (insn.getOpcode()) {
+            case Opcodes.NEWARRAY:
+            case Opcodes.ANEWARRAY:
+                // The engine charges the length of the array. It's usually a constant, but if it isn't, count one.
+                int length = Math.max(1, constantBefore(insns, index));
+                return new Estimate(length, length);
+            case Opcodes.INVOKEVIRTUAL:
+            case Opcodes.INVOKESPECIAL:
+            case Opcodes.INVOKESTATIC:
+            case Opcodes.INVOKEINTERFACE:
+                MethodInsnNode call = (MethodInsnNode) insn;
+                if (call.name.startsWith("debug_") && call.desc.endsWith(")V")) {
+                    return Estimate.ZERO;
+                }
+                Estimate callee = estimate(context, call.owner, call.name, call.desc);
+                if (callee == null) {
+                    int cost = 1 + methodCosts.get(call.owner, call.name);
+                    return new Estimate(cost, cost);
+                }
+                return new Estimate(1 + callee.typical, 1 + callee.worst);
+            default:
+                return new Estimate(1, 1);
+        }
+    }
+
+    /**
+     * @return the int constant pushed by the instruction before `index`, or -1 if it isn't a constant
+     */
+    private static int constantBefore(AbstractInsnNode[] insns, int index) {
+        for (int i = index - 1; i >= 0; i--) {
+            if (insns[i].getOpcode() >= 0) { // Skip labels, line numbers and frames.
+                Integer constant = intConstant(insns[i]);
+                return constant == null ? -1 : constant;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the int constant pushed by an instruction, or null if it doesn't push one
+     */
+    static Integer intConstant(AbstractInsnNode insn) {
+        int opcode = insn.getOpcode();
+        if (opcode >= Opcodes.ICONST_M1 && opcode <= Opcodes.ICONST_5) {
+            return opcode - Opcodes.ICONST_0;
+        }
+        if (opcode == Opcodes.BIPUSH || opcode == Opcodes.SIPUSH) {
+            return ((IntInsnNode) insn).operand;
+        }
+        if (opcode == Opcodes.LDC && ((LdcInsnNode) insn).cst instanceof Integer) {
+            return (Integer) ((LdcInsnNode) insn).cst;
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Costing a control flow graph
+
+    /**
+     * A method's blocks and the edges between them, which collapses its loops and then finds the cost of a path
+     * from the entry block.
+     */
+    private static final class Graph {
+        private final double[] costs;
+        private final List<Set<Integer>> successors;
+        private final boolean worst;
+        private final int[] representative;
+
+        Graph(double[] costs, List<Set<Integer>> successors, boolean worst) {
+            this.costs = costs.clone();
+            this.successors = new ArrayList<>();
+            for (Set<Integer> edges : successors) {
+                this.successors.add(new LinkedHashSet<>(edges));
+            }
+            this.worst = worst;
+            this.representative = new int[costs.length];
+            for (int b = 0; b < costs.length; b++) {
+                representative[b] = b;
+            }
+        }
+
+        double cost(int iterations) {
+            for (Map.Entry<Integer, BitSet> loop : findLoops()) {
+                collapse(loop.getKey(), loop.getValue(), iterations);
+            }
+            return pathCost(find(0), null, -1, new HashMap<>(), new HashSet<>());
+        }
+
+        /**
+         * @return each natural loop's header and blocks, innermost first, with loops sharing a header merged
+         */
+        private List<Map.Entry<Integer, BitSet>> findLoops() {
+            int n = costs.length;
+            List<Set<Integer>> predecessors = new ArrayList<>();
+            for (int b = 0; b < n; b++) {
+                predecessors.add(new HashSet<>());
+            }
+            for (int b = 0; b < n; b++) {
+                for (int s : successors.get(b)) {
+                    predecessors.get(s).add(b);
+                }
+            }
+
+            // An edge back to a block still on the depth first search's stack closes a loop.
+            Map<Integer, BitSet> loops = new HashMap<>();
+            boolean[] visited = new boolean[n];
+            boolean[] onStack = new boolean[n];
+            Deque<int[]> stack = new ArrayDeque<>();
+            Deque<Iterator<Integer>> edges = new ArrayDeque<>();
+            visited[0] = true;
+            onStack[0] = true;
+            stack.push(new int[] { 0 });
+            edges.push(successors.get(0).iterator());
+            while (!stack.isEmpty()) {
+                int block = stack.peek()[0];
+                Iterator<Integer> next = edges.peek();
+                if (!next.hasNext()) {
+                    onStack[block] = false;
+                    stack.pop();
+                    edges.pop();
+                    continue;
+                }
+                int successor = next.next();
+                if (onStack[successor]) {
+                    BitSet body = loops.computeIfAbsent(successor, header -> new BitSet());
+                    addLoopBody(body, successor, block, predecessors);
+                }
+                else if (!visited[successor]) {
+                    visited[successor] = true;
+                    onStack[successor] = true;
+                    stack.push(new int[] { successor });
+                    edges.push(successors.get(successor).iterator());
+                }
+            }
+
+            List<Map.Entry<Integer, BitSet>> sorted = new ArrayList<>(loops.entrySet());
+            sorted.sort(Comparator.comparingInt(loop -> loop.getValue().cardinality()));
+            return sorted;
+        }
+
+        /**
+         * Adds the header, the block jumping back to it, and every block which can reach that one without going
+         * through the header.
+         */
+        private static void addLoopBody(BitSet body, int header, int tail, List<Set<Integer>> predecessors) {
+            body.set(header);
+            Deque<Integer> work = new ArrayDeque<>();
+            if (!body.get(tail)) {
+                body.set(tail);
+                work.push(tail);
+            }
+            while (!work.isEmpty()) {
+                for (int predecessor : predecessors.get(work.pop())) {
+                    if (!body.get(predecessor)) {
+                        body.set(predecessor);
+                        work.push(predecessor);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Replaces a loop with its header, costing one pass through the body times the number of iterations, and
+         * leading to wherever the loop could be left for.
+         */
+        private void collapse(int header, BitSet loop, int iterations) {
+            Set<Integer> members = new HashSet<>();
+            for (int b = loop.nextSetBit(0); b >= 0; b = loop.nextSetBit(b + 1)) {
+                members.add(find(b));
+            }
+            header = find(header);
+
+            double pass = pathCost(header, members, header, new HashMap<>(), new HashSet<>());
+
+            Set<Integer> exits = new LinkedHashSet<>();
+            for (int member : members) {
+                for (int successor : successors.get(member)) {
+                    int target = find(successor);
+                    if (!members.contains(target)) {
+                        exits.add(target);
+                    }
+                }
+            }
+            for (int member : members) {
+                representative[member] = header;
+            }
+            costs[header] = pass * iterations;
+            successors.set(header, exits);
+        }
+
+        /**
+         * @param block   where to start
+         * @param within  only follow edges to these blocks, or null for any
+         * @param stopAt  a block whose cost isn't counted when it's reached again, or -1
+         * @return the cost of the most expensive path from `block`, or the average over branches
+         */
+        private double pathCost(int block, Set<Integer> within, int stopAt, Map<Integer, Double> memo, Set<Integer> visiting) {
+            Double known = memo.get(block);
+            if (known != null) {
+                return known;
+            }
+            if (!visiting.add(block)) {
+                return 0; // A cycle left by irreducible control flow.
+            }
+
+            double total = 0;
+            int branches = 0;
+            for (int successor : successors.get(block)) {
+                int target = find(successor);
+                branches++;
+                if (target == stopAt || (within != null && !within.contains(target))) {
+                    continue; // Leaving the loop, or going round again, ends this pass.
+                }
+                double cost = pathCost(target, within, stopAt, memo, visiting);
+                total = worst ? Math.max(total, cost) : total + cost;
+            }
+            if (!worst && branches > 0) {
+                total /= branches;
+            }
+
+            visiting.remove(block);
+            double cost = costs[block] + total;
+            memo.put(block, cost);
+            return cost;
+        }
+
+        private int find(int block) {
+            while (representative[block] != block) {
+                block = representative[block];
+            }
+            return block;
+        }
+    }
+}
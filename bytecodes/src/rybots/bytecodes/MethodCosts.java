@@ -0,0 +1,91 @@
+package rybots.bytecodes;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The bytecodes the engine charges for calls into code we don't walk ourselves, such as `RobotController` and
+ * `java.lang.Math`, on top of the cost of the invoke instruction.
+ * <p>
+ * Costs are read from files with one method per line, `owner/name cost`, as in the engine's own `MethodCosts.txt`.
+ * Anything after the cost is ignored, as are blank lines and lines starting with `#`. An owner of `package/*`
+ * covers every class in and under that package, and the most specific match wins.
+ */
+class MethodCosts {
+
+    /**
+     * Where the engine keeps its table of costs, if its jar is on the classpath.
+     */
+    static final String ENGINE_RESOURCE = "battlecode/instrumenter/bytecode/resources/MethodCosts.txt";
+
+    private final Map<String, Integer> costs = new HashMap<>();
+
+    /**
+     * Adds the engine's table of costs, if it can be found on the classpath.
+     *
+     * @return true if the engine's table was found
+     * @throws IOException
+     */
+    boolean loadEngineCosts() throws IOException {
+        InputStream in = MethodCosts.class.getClassLoader().getResourceAsStream(ENGINE_RESOURCE);
+        if (in == null) {
+            return false;
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            load(reader);
+        }
+        return true;
+    }
+
+    /**
+     * Adds the costs in a file, replacing any already loaded for the same methods.
+     *
+     * @throws IOException
+     */
+    void load(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            load(reader);
+        }
+    }
+
+    private void load(Reader reader) throws IOException {
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            String[] fields = line.split("\\s+");
+            if (fields.length < 2) {
+                throw new IOException("Expected `owner/name cost`, but got: " + line);
+            }
+            costs.put(fields[0], Integer.parseInt(fields[1]));
+        }
+    }
+
+    /**
+     * @param owner the internal name of the class the method is called on, such as `java/lang/Math`
+     * @param name  the method's name
+     * @return the bytecodes charged for a call to the method, over and above the invoke itself
+     */
+    int get(String owner, String name) {
+        Integer cost = costs.get(owner + "/" + name);
+        if (cost != null) {
+            return cost;
+        }
+        // Fall back to a wildcard for the class, then for each package it's in, innermost first.
+        String prefix = owner;
+        while (!prefix.isEmpty()) {
+            cost = costs.get(prefix + "/*");
+            if (cost != null) {
+                return cost;
+            }
+            int slash = prefix.lastIndexOf('/');
+            prefix = slash < 0 ? "" : prefix.substring(0, slash);
+        }
+        return 0;
+    }
+}
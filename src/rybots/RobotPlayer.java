@@ -1,6 +1,8 @@
 package rybots;
 
 import rybots.bot.*;
+import rybots.utils.Comms;
+import rybots.utils.Profiler;
 import battlecode.common.*;
 
 public strictfp class RobotPlayer {
@@ -38,14 +40,20 @@ public strictfp class RobotPlayer {
                 return;
         }
 
+        Profiler.debug_init(rc);
+        Comms.debug_checkLayout();
+
         thisRobot.sayHello();
         // Robot game loop - repeatedly call `takeTurn()` then yield to the clock.
         while (true) {
             try {
+                Profiler.debug_beginTurn();
                 thisRobot.newTurn();
                 thisRobot.takeTurn();
+                Profiler.debug_endTurn();
                 Clock.yield();
             } catch (Exception e) {
+                Profiler.debug_recordException();
                 System.out.println(thisRobotType + " Exception: " + e.toString());
                 e.printStackTrace();
             }
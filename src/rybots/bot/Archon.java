@@ -2,19 +2,54 @@ package rybots.bot;
 
 import battlecode.common.*;
 import rybots.utils.Comms;
+import rybots.utils.Directions;
+import rybots.utils.Economy;
+import rybots.utils.LeaderElection;
+import rybots.utils.RingBuffer;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.ArrayList;
 import java.util.Collections;
 
+/**
+ * Archons elect a leader between them (see `LeaderElection`). The leader plans the rally points everyone heads for,
+ * which only needs doing once, while the others keep watch and report any enemies they see, like soldiers do, and
+ * keep the obstacle grid up to date around the base, so the leader's turn goes on planning. A leader on its own does
+ * the lot. All of them hire gardeners, spaced out by the shared `Economy`, and if the leader dies one of the others
+ * takes over.
+ */
 public strictfp class Archon extends BaseBot {
 
-    List<Float> bulletCountHistory = new ArrayList<>();
-    Boolean gardenersBuildGardens  = true;
+    // Gardeners are hired in the first free direction this far apart, starting towards the enemy.
+    private static final float HIRE_SEARCH_DEGREES = 30.0f;
+
+    private final Economy economy;
+    private final LeaderElection leadership;
+    private final RingBuffer enemySightings;
+    private int lastSightingReportRound = -Soldier.SIGHTING_REPORT_INTERVAL;
     Direction enemyArchonDirection;
 
+    // Where the rally points were last planned from, and what we last broadcast, so they're only redone when needed.
+    private MapLocation rallyPlannedFrom;
+    private int rallyPlannedBoundsVersion = -1;
+    private MapLocation[] soldierRallyPoints;
+    private MapLocation[] gardenerRallyPoints;
+    private final int[] soldierRallyBroadcasts = new int[Comms.SOLDIER_RALLY_POINTS_COUNT];
+    private final int[] gardenerRallyBroadcasts = new int[Comms.GARDENER_RALLY_POINTS_COUNT];
+
     public Archon(RobotController rc) {
         super(rc);
+        this.economy = new Economy(rc);
+        this.leadership = new LeaderElection(rc, Comms.ARCHON_LEADER_CHANNEL);
+        this.enemySightings = new RingBuffer(rc, Comms.ENEMY_SIGHTINGS_CURSOR_CHANNEL, Comms.ENEMY_SIGHTINGS_CHANNEL,
+                Comms.ENEMY_SIGHTINGS_COUNT, Soldier.SIGHTING_MAX_AGE);
+
+        registerPhase("electLeader",        PRIORITY_CRITICAL, 50,   this::electLeader);
+        registerPhase("hireGardeners",      PRIORITY_HIGH,     300,  this::hireGardeners);
+        registerPhase("planRallyPoints",    PRIORITY_NORMAL,   4500, () -> { if (leadership.isLeader()) planRallyPoints(); });
+        registerPhase("reportEnemies",      PRIORITY_NORMAL,   100,  () -> { if (!leadership.isLeader()) reportEnemies(); });
+        registerPhase("drawRallyPoints",    PRIORITY_LOW,      300,  () -> { if (leadership.isLeader()) drawRallyPoints(); });
+        registerPhase("updateObstacleGrid", PRIORITY_LOW,      1500, () -> { if (!leadership.isLeader() || !hasFollowers()) updateObstacleGrid(); });
     }
 
     public final void sayHello() throws GameActionException {
@@ -22,123 +57,176 @@ public strictfp class Archon extends BaseBot {
 
         // Set up some controls for the first turn...
         rc.broadcastBoolean( Comms.GARDENERS_BUILD_GARDENS_CHANNEL, true );
-        rc.broadcastBoolean( Comms.SCOUT_CONSTRUCTION_ENABLED, true );
 
-        // Find the direction to the enemy archon, so we can spawn units on that side of our Archon.
-        MapLocation[] enemyArchon = rc.getInitialArchonLocations( rc.getTeam().opponent() );
-        enemyArchonDirection = rc.getLocation().directionTo( enemyArchon[0] );
+        // Find the direction to the closest enemy archon, so we can spawn units on that side of our Archon.
+        enemyArchonDirection = rc.getLocation().directionTo( closestEnemyArchon(rc.getLocation()) );
     }
 
-    public final void takeTurn() throws GameActionException {
+    /**
+     * Keeps the leader's heartbeat going, or takes over if the leader has died. A newly elected leader forgets any
+     * rally points it planned before, as whoever led in the meantime will have broadcast their own.
+     *
+     * @throws GameActionException
+     */
+    private void electLeader() throws GameActionException {
+        boolean wasLeader = leadership.isLeader();
+        if (leadership.update(context.getRoundNum()) && !wasLeader) {
+            rallyPlannedFrom = null;
+            Arrays.fill(soldierRallyBroadcasts, 0);
+            Arrays.fill(gardenerRallyBroadcasts, 0);
+        }
+    }
 
-        setSoldierRallyPoints();
-        setGardenerRallyPoints();
+    /**
+     * @return true if there was another archon to take on the followers' work last round
+     * @throws GameActionException
+     */
+    private boolean hasFollowers() throws GameActionException {
+        return census.count(RobotType.ARCHON) > 1;
+    }
 
-//        // Measure the percentage rate of change of bullets over 100 turns, and if it is 30% or more,
-//        // stop hiring Gardeners and hire Soldiers!
-//        if(bulletCountHistory.size() >= 101) {
-//            System.out.println("[archon] Taking bullet sample!");
-//            System.out.println("[archon]   - % diff : " + ((bulletCountHistory.get(100) - bulletCountHistory.get(0)) / bulletCountHistory.get(100) * 100) );
-//            System.out.println("[archon]   - start  : " + bulletCountHistory.get(0)  );
-//            System.out.println("[archon]   - mid    : " + bulletCountHistory.get(50) );
-//            System.out.println("[archon]   - end    : " + bulletCountHistory.get(100));
-//
-//            // The rules for disabling gardeners:
-//            //   * Rate of change over the sampling period is 30% or more.
-//            //   * The start, mid and end points all showed a surplus of 1000 bullets or more.
-//            if( (((bulletCountHistory.get(100) - bulletCountHistory.get(0)) / bulletCountHistory.get(100) * 100) >= 30) ||
-//                ((bulletCountHistory.get(0) >= 1000) && (bulletCountHistory.get(50) >= 1000) && (bulletCountHistory.get(100) >= 1000)) ) {
-//                    System.out.println("[archon]   = disabling gardens!");
-//                    rc.broadcastBoolean( Comms.GARDENERS_BUILD_GARDENS_CHANNEL, false);
-//                    gardenersBuildGardens = false;
-//            }
-//            else if( (((bulletCountHistory.get(100) - bulletCountHistory.get(0)) / bulletCountHistory.get(100) * 100) <= 30) ||
-//                    ((bulletCountHistory.get(0) <= 1000) && (bulletCountHistory.get(50) <= 1000) && (bulletCountHistory.get(100) <= 1000)) ) {
-//                System.out.println("[archon]   = enabling gardens!");
-//                rc.broadcastBoolean( Comms.GARDENERS_BUILD_GARDENS_CHANNEL, true);
-//                gardenersBuildGardens = true;
-//            }
-//            bulletCountHistory.clear();
-//        }
-//        else {
-//            // Add the current bullet count
-//            bulletCountHistory.add( rc.getTeamBullets() );
-//        }
-//
-//        // Debug gardener hiring or not...
-//        if(gardenersBuildGardens) {
-//            rc.setIndicatorDot(rc.getLocation(), 128, 255, 0);
-//        }
-//        else {
-//            rc.setIndicatorDot(rc.getLocation(), 255, 0, 0);
-//        }
-
-        // Hiring time!
-        // Wait for a random interval before attempting to hire a gardener.
-        // If gardens are enabled, hire slower, as they take up more space.
-        // If gardens are disabled due to bullet surplus, hire more frequently
-        // as these "wandering gardeners" will just bumble around hiring more soldiers.
-        if ( gardenersBuildGardens ) {
-            hireGardenerWithChance(.2f);
+    /**
+     * Reports the closest enemy we can see for soldiers to come and deal with, at most once every few rounds.
+     *
+     * @throws GameActionException
+     */
+    private void reportEnemies() throws GameActionException {
+        if (context.getRoundNum() - lastSightingReportRound < Soldier.SIGHTING_REPORT_INTERVAL) {
+            return;
         }
-        else {
-//            hireGardenerWithChance(.03f);
+        RobotInfo[] enemies = context.getEnemies();
+        if (enemies.length > 0) {
+            enemySightings.push(Comms.packCoarseLocation(enemies[0].location));
+            lastSightingReportRound = context.getRoundNum();
         }
     }
 
     /**
-     * The Archon attempts to hire a gardener with a specified random chance.
+     * Updates the team's income estimates, and hires a gardener if the economy says one is due. Tries the direction
+     * of the enemy first, then works round either side of it.
      *
-     * @param  chance A float representing the chance of actually hiring, for example .5 is roughly 50% of the time.
      * @throws GameActionException
      */
-    private void hireGardenerWithChance(Float chance) throws GameActionException {
-        if( Math.random() < chance ) {
-            // If hiring gardeners is allowed, and we have the resources, do it!
+    private void hireGardeners() throws GameActionException {
+        economy.update();
+
+        // If every gardener has been lost, there's no point waiting to replace them, unless another archon already has.
+        boolean gardenersLost = census.count(RobotType.GARDENER) == 0 && census.countSoFar(RobotType.GARDENER) == 0;
+        if (!economy.isHiringDue() && !gardenersLost) {
+            return;
+        }
 
-            if ( rc.canHireGardener( enemyArchonDirection ) ) {
-                rc.hireGardener( enemyArchonDirection );
+        int index = Directions.indexOf(enemyArchonDirection);
+        int step = Directions.steps(HIRE_SEARCH_DEGREES);
+        for (int i = 0; i < Directions.COUNT / step; i++) {
+            // 0, 1, -1, 2, -2...
+            int offset = (i + 1) / 2 * (i % 2 == 0 ? -1 : 1);
+            Direction direction = Directions.get(index + offset * step);
+            if (rc.canHireGardener(direction)) {
+                rc.hireGardener(direction);
+                economy.recordHire();
+                census.countBuilt(RobotType.GARDENER, context.getRoundNum());
+                return;
             }
         }
     }
 
-    private void setGardenerRallyPoints() throws GameActionException {
-         List<MapLocation> rallyPoints = getNSurroundingLocations(rc.getLocation(),7, 14.0f, -1.0f);
-
-         MapLocation[] enemyArchon = rc.getInitialArchonLocations( rc.getTeam().opponent() );
+    /**
+     * Recalculates the rally points, but only if the Archon has moved or we've learnt more about the edges of the map
+     * since last time, as otherwise they'd come out exactly the same.
+     *
+     * @throws GameActionException
+     */
+    private void planRallyPoints() throws GameActionException {
+        MapLocation myLocation = context.getLocation();
+        if (myLocation.equals(rallyPlannedFrom) && mapBounds.getVersion() == rallyPlannedBoundsVersion) {
+            return;
+        }
+        rallyPlannedFrom = myLocation;
+        rallyPlannedBoundsVersion = mapBounds.getVersion();
 
-         Collections.sort(rallyPoints, (x, y) -> Float.compare( x.distanceTo(enemyArchon[0]), y.distanceTo(enemyArchon[0]) ));
+        setSoldierRallyPoints();
+        setGardenerRallyPoints();
+    }
 
-         for( int i=0; i<rallyPoints.size(); i++ ) {
-             if(i==0 || i==1 || i==2) {
-                 rc.broadcastFloat( (int)Comms.GARDENER_RALLY_POINTS.get(i).get("x"), rallyPoints.get(i).x );
-                 rc.broadcastFloat( (int)Comms.GARDENER_RALLY_POINTS.get(i).get("y"), rallyPoints.get(i).y );
+    /**
+     * Draws the current rally points, brightest for the ones which were broadcast.
+     */
+    private void drawRallyPoints() {
+        drawRallyPoints(soldierRallyPoints, Comms.SOLDIER_RALLY_POINTS_COUNT);
+        drawRallyPoints(gardenerRallyPoints, Comms.GARDENER_RALLY_POINTS_COUNT);
+    }
 
-                 rc.setIndicatorDot(rallyPoints.get(i), 102, 255, 255);
-             }
-             else {
-                 rc.setIndicatorDot(rallyPoints.get(i), 0, 128, 128);
-             }
+    private void drawRallyPoints(MapLocation[] rallyPoints, int broadcastCount) {
+        if (rallyPoints == null) {
+            return;
+        }
+        for (int i = 0; i < rallyPoints.length; i++) {
+            if (i < broadcastCount) {
+                rc.setIndicatorDot(rallyPoints[i], 102, 255, 255);
+            }
+            else {
+                rc.setIndicatorDot(rallyPoints[i], 0, 128, 128);
+            }
         }
     }
 
+    private void setGardenerRallyPoints() throws GameActionException {
+        gardenerRallyPoints = chooseRallyPoints(7, 14.0f, -1.0f, Comms.GARDENER_RALLY_POINTS_CHANNEL,
+                Comms.GARDENER_RALLY_POINTS_COUNT, gardenerRallyBroadcasts);
+    }
+
     private void setSoldierRallyPoints() throws GameActionException {
-        List<MapLocation> rallyPoints = getNSurroundingLocations(rc.getLocation(),14, 30.0f, -0.3f);
+        soldierRallyPoints = chooseRallyPoints(14, 30.0f, -0.3f, Comms.SOLDIER_RALLY_POINTS_CHANNEL,
+                Comms.SOLDIER_RALLY_POINTS_COUNT, soldierRallyBroadcasts);
+    }
 
-        MapLocation[] enemyArchon = rc.getInitialArchonLocations( rc.getTeam().opponent() );
+    /**
+     * Generates a ring of rally points around the Archon, pulls any which fall outside the known map bounds back inside,
+     * then broadcasts the ones closest to the enemy archons. Each broadcast point is the closest remaining one to the
+     * next enemy archon in turn, so if there's more than one, none of them is left uncovered. Channels are only written
+     * if their value has changed.
+     *
+     * @param numLocations   number of points around the ring
+     * @param radius         radius of the ring
+     * @param offset         offset in radians to start the ring from
+     * @param channel        first channel to broadcast the points on
+     * @param broadcastCount how many of the points to broadcast
+     * @param broadcasts     the packed values we last broadcast on each channel, updated in place
+     * @return all the points, closest to the enemy first
+     * @throws GameActionException
+     */
+    private MapLocation[] chooseRallyPoints(int numLocations, float radius, float offset, int channel, int broadcastCount, int[] broadcasts) throws GameActionException {
+        List<MapLocation> rallyPoints = getNSurroundingLocations(context.getLocation(), numLocations, radius, offset);
 
-        Collections.sort(rallyPoints, (x, y) -> Float.compare( x.distanceTo(enemyArchon[0]), y.distanceTo(enemyArchon[0]) ));
+        // Keep points far enough from the edge for a robot to stand there.
+        float margin = RobotType.SOLDIER.bodyRadius * 2;
+        for (int i = 0; i < rallyPoints.size(); i++) {
+            rallyPoints.set(i, mapBounds.clamp(rallyPoints.get(i), margin));
+        }
 
-        for( int i=0; i<rallyPoints.size(); i++ ) {
-            if(i==0 || i==1 || i==2) {
-                rc.broadcastFloat( (int)Comms.SOLDIER_RALLY_POINTS.get(i).get("x"), rallyPoints.get(i).x );
-                rc.broadcastFloat( (int)Comms.SOLDIER_RALLY_POINTS.get(i).get("y"), rallyPoints.get(i).y );
+        Collections.sort(rallyPoints, (x, y) -> Float.compare( distanceToEnemyArchons(x), distanceToEnemyArchons(y) ));
 
-                rc.setIndicatorDot(rallyPoints.get(i), 102, 255, 255);
+        // Bring forward the closest point to each enemy archon in turn.
+        for (int i = 0; i < broadcastCount && i < rallyPoints.size(); i++) {
+            MapLocation target = enemyArchons[i % enemyArchons.length];
+            int closest = i;
+            for (int j = i + 1; j < rallyPoints.size(); j++) {
+                if (rallyPoints.get(j).distanceTo(target) < rallyPoints.get(closest).distanceTo(target)) {
+                    closest = j;
+                }
             }
-            else {
-                rc.setIndicatorDot(rallyPoints.get(i), 0, 128, 128);
+            rallyPoints.add(i, rallyPoints.remove(closest));
+        }
+
+        for (int i = 0; i < broadcastCount && i < rallyPoints.size(); i++) {
+            int packed = Comms.packLocation(rallyPoints.get(i));
+            if (packed != broadcasts[i]) {
+                rc.broadcastInt(channel + i, packed);
+                broadcasts[i] = packed;
             }
         }
+
+        return rallyPoints.toArray(new MapLocation[rallyPoints.size()]);
     }
 }
@@ -4,59 +4,173 @@ import battlecode.common.*;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
 
+import rybots.utils.BytecodeCounter;
+import rybots.utils.Census;
 import rybots.utils.Comms;
+import rybots.utils.Directions;
+import rybots.utils.MapBounds;
+import rybots.utils.ObstacleGrid;
+import rybots.utils.Profiler;
+import rybots.utils.Rng;
+import rybots.utils.TurnContext;
 
 public abstract class BaseBot {
 
+    // Phase priorities, lowest number runs first. Critical phases always run, whatever the remaining budget,
+    // the others only run if there are enough bytecodes left to cover their estimated cost.
+    protected static final int PRIORITY_CRITICAL = 0;
+    protected static final int PRIORITY_HIGH     = 1;
+    protected static final int PRIORITY_NORMAL   = 2;
+    protected static final int PRIORITY_LOW      = 3;
+
+    // Bytecodes held back from non-critical phases so the turn loop itself can finish before the limit.
+    private static final int BYTECODE_RESERVE = 500;
+    private static final int MAX_PHASES       = Profiler.MAX_PHASES - 1;
+
+    /**
+     * A single step of a robot's turn, registered with `registerPhase`.
+     */
+    protected interface Phase {
+        void run() throws GameActionException;
+    }
+
     RobotController rc;
+    ObstacleGrid obstacleGrid;
+    MapBounds mapBounds;
+    TurnContext context;
+    Rng rng;
+    Census census;
+
+    // Where every enemy archon started. There can be up to three, so don't assume there's only one.
+    MapLocation[] enemyArchons;
 
     BaseBot(RobotController rc) {
         this.rc = rc;
+        this.rng = new Rng(rc);
+        this.census = new Census(rc);
+        this.context = new TurnContext(rc);
+        this.obstacleGrid = new ObstacleGrid(rc);
+        this.mapBounds = new MapBounds(rc);
+        this.enemyArchons = rc.getInitialArchonLocations(rc.getTeam().opponent());
     }
 
-    Boolean turnEnded = false;
+    private boolean turnEnded = false;
+
+    private int numPhases = 0;
+    private final Phase[] phases = new Phase[MAX_PHASES];
+    private final String[] phaseNames = new String[MAX_PHASES];
+    private final int[] phasePriorities = new int[MAX_PHASES];
+    private final int[] phaseCosts = new int[MAX_PHASES];
+    private final int[] phaseSlots = new int[MAX_PHASES];
 
     MapLocation currentDestination = null;
     private Float currentDestinationArrivalRange;
     private Integer currentDestinationIndicatorColourRed;
     private Integer currentDestinationIndicatorColourGreen;
     private Integer currentDestinationIndicatorColourBlue;
-    private Integer failedMoves = 0;
+
+    // Bug navigation state, kept across turns so the robot remembers which wall it is following.
+    // See `navigateTo`.
+    private static final float NAV_SWEEP_DEGREES = 30.0f;
+    private static final int   NAV_SWEEP_STEPS   = 12;  // Enough to sweep a full circle, and bounds the cost of a step.
+    private static final int   NAV_PATIENCE      = 50;  // Turns without getting any closer before giving up.
+    private static final int   NAV_FLIP_TURNS    = 20;  // Turns following one wall before trying the other side.
+    private boolean bugging = false;
+    private boolean bugWallOnRight = true;
+    private int bugHeading;
+    private float bugStartDistance;
+    private int bugTurns = 0;
+    private float navClosestDistance = Float.MAX_VALUE;
+    private int navTurnsWithoutProgress = 0;
 
     public Integer rallyPoint = null;
     public Boolean rallied = false;
 
     public abstract void sayHello() throws GameActionException;
 
-    public abstract void takeTurn() throws GameActionException;
-
     /**
-     * Starts a new turn by setting the "turnEnded" boolean to false.
-     * Turn methods should check for this boolean and return immediately if it is true
-     * to allow for skipping to the end of the robots turn.
+     * Starts a new turn, allowing all registered phases to run again, and clearing last turn's sensing snapshot.
      */
     public void newTurn() {
         turnEnded = false;
+        context.reset();
     }
 
     /**
-     * Marks the turn as ended, so any further turn actions can be skipped.
-     * Turn methods should check for this boolean and return immediately if it is true.
-     * to allow for skipping to the end of the robots turn.
+     * Marks the turn as ended, so the scheduler skips any phases which haven't run yet this turn.
      */
     protected void endTurn() {
         turnEnded = true;
     }
 
+    /**
+     * Registers a phase to be run every turn by `takeTurn`.
+     * <p>
+     * Phases run in order of priority, then in the order they were registered. A non-critical phase is skipped for the
+     * turn if `BytecodeCounter.getBytecodesLeft()` is lower than its estimated cost, so low priority work gives way to
+     * the important stuff when the budget is tight. Critical phases, such as dodging and firing, are never skipped for budget.
+     *
+     * @param name          a human readable name for the phase, used by the profiler
+     * @param priority      one of the `PRIORITY_` constants
+     * @param estimatedCost roughly how many bytecodes the phase uses in a typical turn
+     * @param phase         the code to run
+     */
+    protected void registerPhase(String name, int priority, int estimatedCost, Phase phase) {
+        // Insertion sort, so phases stay ordered by priority and registration order.
+        int index = numPhases;
+        while (index > 0 && phasePriorities[index - 1] > priority) {
+            phases[index] = phases[index - 1];
+            phaseNames[index] = phaseNames[index - 1];
+            phasePriorities[index] = phasePriorities[index - 1];
+            phaseCosts[index] = phaseCosts[index - 1];
+            phaseSlots[index] = phaseSlots[index - 1];
+            index--;
+        }
+        phases[index] = phase;
+        phaseNames[index] = name;
+        phasePriorities[index] = priority;
+        phaseCosts[index] = estimatedCost;
+        phaseSlots[index] = numPhases + 1; // Profiler slot 0 is the whole turn.
+        numPhases++;
+    }
+
+    /**
+     * Counts this robot in the census, then runs this turn's phases in priority order until they have all run, the
+     * turn is ended, or the budget runs out.
+     *
+     * @throws GameActionException
+     */
+    public void takeTurn() throws GameActionException {
+        census.countIn(context.getRoundNum());
+        mapBounds.discover(context.getLocation());
+
+        for (int i = 0; i < numPhases; i++) {
+            if (turnEnded) {
+                return;
+            }
+
+            if (phasePriorities[i] != PRIORITY_CRITICAL && BytecodeCounter.getBytecodesLeft() < phaseCosts[i] + BYTECODE_RESERVE) {
+                continue;
+            }
+
+            Profiler.debug_beginPhase(phaseSlots[i], phaseNames[i]);
+            try {
+                phases[i].run();
+            }
+            finally {
+                Profiler.debug_endPhase(phaseSlots[i]);
+            }
+        }
+    }
+
     /**
      * Returns a random Direction
      *
      * @return a random Direction
      */
     protected Direction randomDirection() {
-        return new Direction((float) Math.random() * 2 * (float) Math.PI);
+        return Directions.random(rng);
     }
 
     /**
@@ -84,21 +198,29 @@ public abstract class BaseBot {
         // First, try intended direction
         if (rc.canMove(dir)) {
             rc.move(dir);
+            context.moved();
             return true;
         }
 
-        // Now try a bunch of similar angles
+        // Now try a bunch of similar angles, looked up from the direction table so each candidate
+        // is only worked out once for both the check and the move.
+        int index = Directions.indexOf(dir);
+        int step = Directions.steps(degreeOffset);
         int currentCheck = 1;
 
         while (currentCheck <= checksPerSide) {
             // Try the offset of the left side
-            if (rc.canMove(dir.rotateLeftDegrees(degreeOffset * currentCheck))) {
-                rc.move(dir.rotateLeftDegrees(degreeOffset * currentCheck));
+            Direction left = Directions.get(index + step * currentCheck);
+            if (rc.canMove(left)) {
+                rc.move(left);
+                context.moved();
                 return true;
             }
             // Try the offset on the right side
-            if (rc.canMove(dir.rotateRightDegrees(degreeOffset * currentCheck))) {
-                rc.move(dir.rotateRightDegrees(degreeOffset * currentCheck));
+            Direction right = Directions.get(index - step * currentCheck);
+            if (rc.canMove(right)) {
+                rc.move(right);
+                context.moved();
                 return true;
             }
             // No move performed, try slightly further
@@ -143,19 +265,41 @@ public abstract class BaseBot {
      * @return a List of MapLocations
      */
     public static List<MapLocation> getNSurroundingLocations(MapLocation center, int numLocations, float radius, float offset) {
-        double step = (Math.PI * 2) / numLocations;
-        double currentAngle = offset;
+        // The unit vectors for the ring are cached, so asking for the same ring every turn doesn't repeat the trig.
+        int ring = Directions.ring(numLocations, offset);
+        float[] cosines = Directions.ringCos(ring);
+        float[] sines = Directions.ringSin(ring);
         List<MapLocation> locations = new ArrayList<>(numLocations);
 
         for (int i = 0; i < numLocations; i++) {
-            Direction direction = new Direction((float) currentAngle);
-            locations.add(center.add(direction, radius));
-            currentAngle += step;
+            locations.add(new MapLocation(center.x + cosines[i] * radius, center.y + sines[i] * radius));
         }
 
         return locations;
     }
 
+    /**
+     * @param location where to measure from
+     * @return the starting location of whichever enemy archon started closest to `location`
+     */
+    protected MapLocation closestEnemyArchon(MapLocation location) {
+        MapLocation closest = enemyArchons[0];
+        for (int i = 1; i < enemyArchons.length; i++) {
+            if (location.distanceTo(enemyArchons[i]) < location.distanceTo(closest)) {
+                closest = enemyArchons[i];
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * @param location where to measure from
+     * @return how far `location` is from the closest enemy archon's starting location
+     */
+    protected float distanceToEnemyArchons(MapLocation location) {
+        return location.distanceTo(closestEnemyArchon(location));
+    }
+
     /**
      * Checks whether a robot is able to move in a given direction
      *
@@ -168,36 +312,13 @@ public abstract class BaseBot {
     }
 
     /**
-     * A slightly more complicated example function, this returns true if the given bullet is on a collision
-     * course with the current robot. Doesn't take into account objects between the bullet and this robot.
+     * Folds any trees the robot can currently see into the team's shared obstacle grid, and clears any cells in sight
+     * whose trees have gone, every so often.
      *
-     * @param bullet The bullet in question
-     * @return True if the line of the bullet's path intersects with this robot's current position.
+     * @throws GameActionException
      */
-    public boolean willCollideWithMe(BulletInfo bullet) {
-        MapLocation myLocation = rc.getLocation();
-
-        // Get relevant bullet information
-        Direction bulletDirection = bullet.dir;
-        MapLocation bulletLocation = bullet.location;
-
-        // Calculate bullet relations to this robot
-        Direction directionToRobot = bulletLocation.directionTo(myLocation);
-        float distToRobot = bulletLocation.distanceTo(myLocation);
-        float theta = bulletDirection.radiansBetween(directionToRobot);
-
-        // If theta > 90 degrees, then the bullet is traveling away from us and we can break early
-        if (Math.abs(theta) > Math.PI / 2) {
-            return false;
-        }
-
-        // distToRobot is our hypotenuse, theta is our angle, and we want to know this length of the opposite leg.
-        // This is the distance of a line that goes from myLocation and intersects perpendicularly with propagationDirection.
-        // This corresponds to the smallest radius circle centered at our location that would intersect with the
-        // line that is the path of the bullet.
-        float perpendicularDist = (float) Math.abs(distToRobot * Math.sin(theta)); // soh cah toa :)
-
-        return (perpendicularDist <= rc.getType().bodyRadius);
+    public void updateObstacleGrid() throws GameActionException {
+        obstacleGrid.update(context.getTrees(), context.getLocation(), context.getRoundNum());
     }
 
     /**
@@ -206,10 +327,6 @@ public abstract class BaseBot {
      * @throws GameActionException
      */
     public void patrol() throws GameActionException {
-        if (turnEnded) {
-            return;
-        }
-
         Direction randomDirection = randomDirection();
         if (canMove(randomDirection)) {
             tryMove(randomDirection);
@@ -227,6 +344,11 @@ public abstract class BaseBot {
      * @param indicatorBlue   Used to draw an indicator line toward the target.
      */
     public void setDestination(MapLocation location, Float arrivalRange, Integer indicatorRed, Integer indicatorGreen, Integer indicatorBlue) {
+        if (!location.equals(currentDestination)) {
+            bugging = false;
+            navClosestDistance = Float.MAX_VALUE;
+            navTurnsWithoutProgress = 0;
+        }
         currentDestination = location;
         currentDestinationArrivalRange = arrivalRange;
         currentDestinationIndicatorColourRed = indicatorRed;
@@ -250,70 +372,135 @@ public abstract class BaseBot {
      */
     public void clearDestination() {
         currentDestination = null;
+        bugging = false;
+        navClosestDistance = Float.MAX_VALUE;
+        navTurnsWithoutProgress = 0;
         currentDestinationArrivalRange = 0.0f;
         currentDestinationIndicatorColourRed = 0;
         currentDestinationIndicatorColourGreen = 0;
         currentDestinationIndicatorColourBlue = 0;
     }
 
+    /**
+     * Draws an indicator line toward the current destination, if it has one and was given indicator colours.
+     * Kept separate from `continueToDestination` so it can be registered as a low priority phase.
+     */
+    public void drawDestinationIndicator() {
+        if (currentDestination != null && currentDestinationIndicatorColourRed != 0) {
+            rc.setIndicatorLine(context.getLocation(), currentDestination,
+                    currentDestinationIndicatorColourRed,
+                    currentDestinationIndicatorColourGreen,
+                    currentDestinationIndicatorColourBlue
+            );
+        }
+    }
+
     /**
      * The robot continues moving to an existing destination if it has one.
      *
      * @throws GameActionException
      */
     public boolean continueToDestination() throws GameActionException {
-        if (turnEnded) {
-            return false;
-        }
-
         if (currentDestination == null) {
             return false;
         } else {
 
-            if(currentDestinationIndicatorColourRed != 0) {
-                rc.setIndicatorLine(rc.getLocation(), currentDestination,
-                        currentDestinationIndicatorColourRed,
-                        currentDestinationIndicatorColourGreen,
-                        currentDestinationIndicatorColourBlue
-                );
+            // Keep the destination inside the known edges of the map, which may have been found since it was set.
+            currentDestination = mapBounds.clamp(currentDestination, context.getType().bodyRadius);
+
+            // If someone has already seen a tree sitting on the destination, there's no point trying to get there.
+            if (obstacleGrid.isBlocked(currentDestination)) {
+                rallied = true;
+                clearDestination();
+                return false;
             }
 
             // Continue toward the current destination...
-
             if (!rc.hasMoved()) {
-                // If we are unable to move to the destination this time, increment a counter.
-
-                // Check if location would take us off the map.
-                MapLocation intendedMoveLocation = rc.getLocation().add( rc.getLocation().directionTo(currentDestination), rc.getType().strideRadius * 2 );
-                if(! rc.onTheMap( intendedMoveLocation ) ) {
-                    System.out.println("Not on the map!");
-                    failedMoves++;
-                }
-
-                if (!tryMove(rc.getLocation().directionTo(currentDestination))) {
-                    failedMoves++;
-                }
+                navigateTo(currentDestination);
+            }
+
+            float distance = context.getLocation().distanceTo(currentDestination);
+
+            // Have we arrived yet? If the distance is less than the radius of this robot, we've made it!
+            if (distance <= currentDestinationArrivalRange) {
+                clearDestination();
+                return true;
             }
 
-            // If we have failed to move to the destination too many times, give up and pick a new destination
-            // to avoid getting stuck.
-            if (failedMoves >= 10) {
-                failedMoves = 0;
-                rallied = true; // So the robot doesn't keep trying to rally to points off the map. TODO: Don't have points off the map in the first place.
+            // Only give up if we've gone a long time without getting any closer, as following a wall around a big
+            // obstacle can mean heading away from the destination for a while.
+            if (distance < navClosestDistance) {
+                navClosestDistance = distance;
+                navTurnsWithoutProgress = 0;
+            }
+            else if (++navTurnsWithoutProgress >= NAV_PATIENCE) {
+                rallied = true;
                 clearDestination();
                 endTurn();
-                return false;
-            } else {
+            }
+        }
+        return false;
+    }
 
-                // Have we arrived yet? If the distance is less than the radius of this robot, we've made it!
-                // System.out.println( rc.getLocation().distanceTo( currentDestination ));
-                if (rc.getLocation().distanceTo(currentDestination) <= currentDestinationArrivalRange) {
-                    clearDestination();
-                    return true;
-                }
+    /**
+     * Takes one step toward a destination using bug navigation.
+     * <p>
+     * The robot heads straight for the destination until something blocks it, then follows the edge of the obstacle,
+     * keeping it on one side, until it is closer to the destination than where it started following and has a clear
+     * path again. The wall being followed is remembered between turns. If the robot follows one wall for too long,
+     * for example because it hit the edge of the map, it switches to following the other way round.
+     * <p>
+     * Each step checks at most `NAV_SWEEP_STEPS` directions, so the cost per turn is bounded.
+     *
+     * @param destination the MapLocation to head toward
+     * @return true if a move was performed
+     * @throws GameActionException
+     */
+    protected boolean navigateTo(MapLocation destination) throws GameActionException {
+        MapLocation myLocation = context.getLocation();
+        Direction toDestination = myLocation.directionTo(destination);
+        float distance = myLocation.distanceTo(destination);
+
+        if (bugging) {
+            // Leave the wall once we're closer than when we started following it, and have a clear path.
+            if (distance < bugStartDistance && rc.canMove(toDestination)) {
+                bugging = false;
+            }
+            else if (++bugTurns >= NAV_FLIP_TURNS) {
+                bugWallOnRight = !bugWallOnRight;
+                bugTurns = 0;
+                bugStartDistance = distance;
+            }
+        }
 
+        if (!bugging) {
+            if (tryMove(toDestination, NAV_SWEEP_DEGREES, 1)) {
+                return true;
             }
+
+            // Blocked, so start following the obstacle's edge.
+            bugging = true;
+            bugHeading = Directions.indexOf(toDestination);
+            bugStartDistance = distance;
+            bugTurns = 0;
         }
+
+        // Start by turning back toward the wall, then sweep away from it until we find a direction we can move in.
+        // When following with the wall on our right we sweep left, and vice versa.
+        int sweep = bugWallOnRight ? Directions.steps(NAV_SWEEP_DEGREES) : -Directions.steps(NAV_SWEEP_DEGREES);
+        int heading = bugHeading - Directions.steps(90) * (bugWallOnRight ? 1 : -1);
+        for (int i = 0; i < NAV_SWEEP_STEPS; i++) {
+            Direction direction = Directions.get(heading);
+            if (rc.canMove(direction)) {
+                rc.move(direction);
+                context.moved();
+                bugHeading = heading;
+                return true;
+            }
+            heading += sweep;
+        }
+
         return false;
     }
 }
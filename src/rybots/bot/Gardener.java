@@ -4,84 +4,248 @@ import battlecode.common.*;
 import static battlecode.common.GameConstants.*;
 
 import rybots.utils.Comms;
+import rybots.utils.Economy;
+import rybots.utils.GardenSites;
+import rybots.utils.WateringSchedule;
 
-import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Random;
-import java.util.Set;
 import java.util.Collections;
 
 public strictfp class Gardener extends BaseBot {
 
+    // How often to check that the trees we think are standing still are, in rounds.
+    private static final int SLOT_CHECK_INTERVAL = 10;
+
     private Boolean inGoodLocation = false;
-    private MapLocation spawningGap;
-    private Set<MapLocation> gardenTreeLocations;
+    private final GardenSites gardenSites;
+    private final WateringSchedule wateringSchedule;
+
+    // How long to allow for reaching an orphaned garden, on top of walking straight there.
+    private static final int ADOPTION_PATIENCE = 20;
+
+    // How much thirstier a tree out of reach must be before a gardener looking after an orphaned garden goes to it.
+    private static final float ADOPTION_TENDING_MARGIN = 10.0f;
+    private int adoptionDeadline;
+
+    // Whether the archons want gardens planted, or soldiers built with the bullets piling up. See `Economy`.
+    private boolean buildGardens = true;
+    private Direction wanderDirection;
+
+    // The garden layout, worked out once when the gardener settles down as it never moves again.
+    // Each slot has a planting direction, the location its tree will stand at, and the ID of the tree
+    // planted there, or 0 if it is missing.
+    private Direction spawningDirection;
+    private Direction[] slotDirections;
+    private MapLocation[] slotLocations;
+    private int[] slotTreeIds;
+    private int nextSlotCheckRound = 0;
 
     // Generates an offset to start drawing the garden circle from. We later split the garden circle into wedges,
     // with one wedge per tree, removing the first tree to create a gap to spawn units from.
     // This ensures the spawning gap will be in a different position each time.
-    private float offsetForSpawningGap = new Random().nextFloat() * (float)(Math.PI * 2);
-
-    List<Boolean> scoutHealthChecks = new ArrayList<>();
+    private float offsetForSpawningGap = rng.nextAngle();
 
     private Integer rallyPoint = null;
     private Boolean rallied = false;
 
     public Gardener(RobotController rc) {
         super(rc);
+        this.gardenSites = new GardenSites(rc);
+        this.wateringSchedule = new WateringSchedule(rc);
+
+        // If we're already in a good garden spot, stay put and maintain it, otherwise go and find one. When the team
+        // has bullets to spare, gardens stop growing, and gardeners without one wander about building soldiers instead.
+        // Gardeners in a garden also replace the team's scout when the census shows it's been lost.
+        registerPhase("readGardenOrders",         PRIORITY_HIGH,   20,   this::readGardenOrders);
+        registerPhase("buildScouts",              PRIORITY_HIGH,   100,  () -> { if (inGoodLocation) buildScouts(); });
+        registerPhase("buildSoldiersFromGarden",  PRIORITY_HIGH,   200,  () -> { if (inGoodLocation) buildSoldiersFromGarden(); });
+        registerPhase("buildGarden",              PRIORITY_HIGH,   2500, () -> { if (inGoodLocation && buildGardens) buildGarden(); });
+        registerPhase("waterGarden",              PRIORITY_HIGH,   300,  () -> { if (inGoodLocation) waterGarden(); });
+        registerPhase("findGardenLocation",       PRIORITY_NORMAL, 5000, () -> { if (!inGoodLocation && buildGardens) findGardenLocation(); });
+        registerPhase("wander",                   PRIORITY_NORMAL, 300,  () -> { if (!inGoodLocation && !buildGardens) wander(); });
+        registerPhase("holdGardenSite",           PRIORITY_HIGH,   20,   () -> gardenSites.refresh(context.getRoundNum()));
+        registerPhase("drawDestinationIndicator", PRIORITY_LOW,    50,   this::drawDestinationIndicator);
+        registerPhase("updateObstacleGrid",       PRIORITY_LOW,    1500, this::updateObstacleGrid);
     }
 
     public final void sayHello() throws GameActionException {
         System.out.println("Spawning: Gardener");
 
 //        // Choose a random rally point, determine the coordinates and set it as our destination.
-//        rallyPoint = new Random().nextInt(3);
+//        rallyPoint = new Random().nextInt(Comms.GARDENER_RALLY_POINTS_COUNT);
 //
-//        Float x = rc.readBroadcastFloat((int)Comms.GARDENER_RALLY_POINTS.get(rallyPoint).get("x"));
-//        Float y = rc.readBroadcastFloat((int)Comms.GARDENER_RALLY_POINTS.get(rallyPoint).get("y"));
+//        MapLocation rallyLocation = Comms.readLocation(rc, Comms.GARDENER_RALLY_POINTS_CHANNEL + rallyPoint);
 //
-//        setDestination(new MapLocation(x, y), rc.getType().bodyRadius * 4, 64, 0 , 128);
+//        setDestination(rallyLocation, rc.getType().bodyRadius * 4, 64, 0 , 128);
     }
 
-    public final void takeTurn() throws GameActionException {
+    /**
+     * Picks up whether the archons want gardens planted this turn.
+     *
+     * @throws GameActionException
+     */
+    private void readGardenOrders() throws GameActionException {
+        buildGardens = Economy.readBuildGardens(rc);
+    }
 
-        // If we're already in a good garden spot, stay put and maintain it.
-        if( inGoodLocation ) {
-            buildSoldiersFromGarden();
-            buildGarden();
-            waterGarden();
-            // buildScouts();
+    /**
+     * Not in a good spot yet, so the gardener claims the nearest free garden site and heads there, settling down once
+     * it arrives somewhere suitable. Sites which turn out to be blocked, or which can't be reached, are marked as such
+     * so nobody else tries them for a while. If every site is taken, it looks around for a spot of its own instead.
+     * Orphaned gardens, whose gardener has died, are taken over before any empty site.
+     *
+     * @throws GameActionException
+     */
+    private void findGardenLocation() throws GameActionException {
+        MapLocation site = gardenSites.getClaimed();
+        if( site != null && gardenSites.isAdopting() ) {
+            adoptGarden(site);
+            return;
+        }
+        if( site != null && (!site.equals(currentDestination) || isSiteBlocked(site)) ) {
+            gardenSites.markBlocked(context.getRoundNum());
+            clearDestination();
         }
-        // Not in a good spot, either need to go find one, or act as a wandering gardener if gardens are disabledf.
-        else {
-            if( currentDestination == null ) {
+        if( currentDestination == null ) {
+            site = gardenSites.claimNearest(context.getLocation(), context.getRoundNum(), mapBounds, obstacleGrid);
+            if( site != null && gardenSites.isAdopting() ) {
+                float rounds = context.getLocation().distanceTo(site) / context.getType().strideRadius;
+                adoptionDeadline = context.getRoundNum() + (int) rounds + ADOPTION_PATIENCE;
+                adoptGarden(site);
+                return;
+            }
+            if( site != null ) {
+                setDestination(site, context.getType().strideRadius, 128, 255, 0);
+            }
+            else {
                 searchForGardenLocation();
             }
-            if( continueToDestination() ) {
-              if( isSuitableLocation(rc.getLocation(), 2.0f) ) {
-                  inGoodLocation = true;
-              }
+        }
+        if( continueToDestination() ) {
+            if( isSuitableLocation(context.getLocation(), 2.0f) ) {
+                settle();
+            }
+            else {
+                gardenSites.markBlocked(context.getRoundNum());
+            }
+        }
+    }
+
+    /**
+     * Heads for an orphaned garden and looks after its trees. A full garden is too tight for another gardener to get
+     * into the middle of, so it works its way around the outside instead, going to whichever tree needs water most.
+     * If it takes too long to get there, or loses sight of the garden for too long, the site is given up on, and once
+     * the trees are all gone, the site is treated like any other and a new garden is planted on it.
+     *
+     * @param  site the orphaned garden site
+     * @throws GameActionException
+     */
+    private void adoptGarden(MapLocation site) throws GameActionException {
+        // Only trees we can see are returned, so no trees only means they're gone once we can see the whole garden.
+        TreeInfo[] trees = rc.canSenseLocation(site) ? rc.senseNearbyTrees(site, gardenRadius(), context.getTeam()) : new TreeInfo[0];
+        if( trees.length == 0 ) {
+            if( rc.canSenseAllOfCircle(site, gardenRadius(BULLET_TREE_RADIUS)) ) {
+                gardenSites.stopAdopting();
+                setDestination(site, context.getType().strideRadius, 128, 255, 0);
+            }
+            else if( context.getRoundNum() > adoptionDeadline ) {
+                gardenSites.markBlocked(context.getRoundNum());
             }
+            else if( !rc.hasMoved() ) {
+                navigateTo(site);
+            }
+            return;
         }
+        gardenSites.settle(context.getRoundNum());
+        adoptionDeadline = context.getRoundNum() + ADOPTION_PATIENCE;
+
+        // Water whichever tree in reach needs it most, and only move on when one out of reach is much thirstier, as
+        // walking round the garden takes a while.
+        TreeInfo thirstiest = trees[0];
+        TreeInfo thirstiestInReach = null;
+        for (TreeInfo tree : trees) {
+            if (tree.health < thirstiest.health) {
+                thirstiest = tree;
+            }
+            if (rc.canWater(tree.ID) && (thirstiestInReach == null || tree.health < thirstiestInReach.health)) {
+                thirstiestInReach = tree;
+            }
+        }
+        if( thirstiestInReach != null ) {
+            rc.water(thirstiestInReach.ID);
+            rc.setIndicatorDot(thirstiestInReach.location, 0, 128, 255);
+        }
+        if( thirstiestInReach == null || thirstiest.health < thirstiestInReach.health - ADOPTION_TENDING_MARGIN ) {
+            // Stand just outside the garden, on the far side of the tree from the middle. The garden is round, so
+            // sliding along its edge is enough to get there.
+            MapLocation spot = site.add(site.directionTo(thirstiest.location), gardenRadius() + BULLET_TREE_RADIUS + context.getType().bodyRadius);
+            if( !rc.hasMoved() && context.getLocation().distanceTo(spot) > context.getType().strideRadius ) {
+                tryMove(context.getLocation().directionTo(spot));
+            }
+        }
+    }
 
+    /**
+     * Settles down where we are for good, laying out the garden and letting everyone know the site is taken.
+     *
+     * @throws GameActionException
+     */
+    private void settle() throws GameActionException {
+        inGoodLocation = true;
+        clearDestination();
+        planGarden();
+        gardenSites.settle(context.getRoundNum());
     }
 
     /**
-     * The gardener stays put and attempts to build soldiers on a random interval.
+     * Checks a garden site we're heading for, once it's close enough to see all of, for anything which would stop a
+     * garden being planted there for good. Robots in the way are ignored, as they'll usually move on.
+     *
+     * @param  site the garden site to check
+     * @return      true if the site is off the map or has trees on it
+     * @throws GameActionException
+     */
+    private boolean isSiteBlocked(MapLocation site) throws GameActionException {
+        float radius = gardenRadius(BULLET_TREE_RADIUS);
+        return rc.canSenseAllOfCircle(site, radius) &&
+                (!rc.onTheMap(site, radius) || rc.senseNearbyTrees(site, radius, null).length > 0);
+    }
+
+    /**
+     * The gardener stays put and attempts to build soldiers on a random interval, or whenever it can if the team has
+     * bullets to spare.
      *
      * @throws GameActionException
      */
     private void buildSoldiersFromGarden() throws GameActionException {
 
-        if ( Math.random() < 0.5 ) {
-            if( rc.canBuildRobot( RobotType.SOLDIER, rc.getLocation().directionTo(spawningGap)) ) {
-                rc.buildRobot( RobotType.SOLDIER, rc.getLocation().directionTo(spawningGap) );
+        if ( !buildGardens || rng.chance(0.5f) ) {
+            if( rc.canBuildRobot( RobotType.SOLDIER, spawningDirection ) ) {
+                rc.buildRobot( RobotType.SOLDIER, spawningDirection );
+                Economy.recordSpend(rc, RobotType.SOLDIER.bulletCost);
             }
         }
 
     }
 
+    /**
+     * With no garden to look after and bullets to spare, the gardener bumbles about building soldiers, keeping to one
+     * direction until it's blocked.
+     *
+     * @throws GameActionException
+     */
+    private void wander() throws GameActionException {
+        // No garden to head for while we're wandering, so let someone else have our site.
+        if (gardenSites.getClaimed() != null) {
+            gardenSites.release();
+            clearDestination();
+        }
+        buildSoldiers();
+        if (wanderDirection == null || !tryMove(wanderDirection)) {
+            wanderDirection = randomDirection();
+        }
+    }
+
     /**
      * The wandering gardener attempts to build soldiers in a random direction.
      *
@@ -91,49 +255,50 @@ public strictfp class Gardener extends BaseBot {
 
         Direction randomDirection = randomDirection();
 
-        if ( Math.random() < 0.8 ) {
+        if ( rng.chance(0.8f) ) {
             if( rc.canBuildRobot( RobotType.SOLDIER, randomDirection )) {
                 rc.buildRobot( RobotType.SOLDIER, randomDirection );
+                Economy.recordSpend(rc, RobotType.SOLDIER.bulletCost);
             }
         }
 
     }
 
     /**
-     * The gardener stays put and attempts to build a single scout.
+     * The gardener stays put and builds a scout, if the census shows the team had none last round and nobody has
+     * built or counted one yet this round, so several gardeners don't all build one at once.
      *
      * @throws GameActionException
      */
     private void buildScouts() throws GameActionException {
-        //    /*
-        //    * Gardener builds a scout if there is no scout...
-        //    *   * scout sets a boolean on a heartbeat channel
-        //    *   * gardener reads this boolean
-        //    *   * if during the last three turns, the boolean was false this means the scout
-        //    *     hasn't checked in so must be destroyed in which case so we build another...
-        //    *   * archon sets the boolean to false each turn.
-        //    */
-        //    if( ! rc.readBroadcastBoolean( Comms.SCOUT_CONSTRUCTION_ENABLED ) ) {
-        //        scoutHealthChecks.add(rc.readBroadcastBoolean(Comms.SCOUT_HEARTBEAT_CHANNEL));
-        //        if (scoutHealthChecks.size() >= 6) {
-        //            if (!scoutHealthChecks.get(0) && !scoutHealthChecks.get(1) && !scoutHealthChecks.get(2) && !scoutHealthChecks.get(3) && !scoutHealthChecks.get(4)) {
-        //                rc.broadcastBoolean(Comms.SCOUT_CONSTRUCTION_ENABLED, true);
-        //                System.out.println("[gardener] Scout construction enabled...");
-        //            }
-        //            scoutHealthChecks.clear();
-        //        }
-        //    }
-
-        Direction dir = randomDirection();
-
-        Boolean scoutBuildingEnabled = rc.readBroadcastBoolean( Comms.SCOUT_CONSTRUCTION_ENABLED );
-        System.out.println("[gardener] Scout building status:  " + scoutBuildingEnabled);
-
-        if( scoutBuildingEnabled && rc.canBuildRobot( RobotType.SCOUT, rc.getLocation().directionTo(spawningGap) )) {
-            System.out.println("[gardener] BUILD A SCOUT!");
-            rc.buildRobot( RobotType.SCOUT, rc.getLocation().directionTo(spawningGap) );
-            rc.broadcastBoolean( Comms.SCOUT_CONSTRUCTION_ENABLED, false );
-            return;
+        boolean noScouts = census.count(RobotType.SCOUT) == 0 && census.countSoFar(RobotType.SCOUT) == 0;
+        if( noScouts && rc.canBuildRobot( RobotType.SCOUT, spawningDirection )) {
+            rc.buildRobot( RobotType.SCOUT, spawningDirection );
+            Economy.recordSpend(rc, RobotType.SCOUT.bulletCost);
+            census.countBuilt(RobotType.SCOUT, context.getRoundNum());
+        }
+    }
+
+    /**
+     * Works out the layout of the garden around the gardener's current location.
+     * Called once when the gardener settles down, as the layout never changes after that.
+     */
+    private void planGarden() {
+
+        List<MapLocation> locations = getSurroundingBuildLocations(context.getLocation(), BULLET_TREE_RADIUS, gardenRadius(), offsetForSpawningGap);
+
+        // Spawning gap should be whichever location in the garden is closest to an enemy archon, which should result in the spawning gap
+        // facing the enemy.
+        Collections.sort(locations, (x, y) -> Float.compare( distanceToEnemyArchons(x), distanceToEnemyArchons(y) ));
+        spawningDirection = context.getLocation().directionTo(locations.get(0));
+
+        int numSlots = locations.size() - 1;
+        slotDirections = new Direction[numSlots];
+        slotLocations = new MapLocation[numSlots];
+        slotTreeIds = new int[numSlots];
+        for (int i = 0; i < numSlots; i++) {
+            slotLocations[i] = locations.get(i + 1);
+            slotDirections[i] = context.getLocation().directionTo(slotLocations[i]);
         }
     }
 
@@ -144,88 +309,99 @@ public strictfp class Gardener extends BaseBot {
      */
     private void buildGarden() throws GameActionException {
 
-        List<MapLocation> locations = getSurroundingBuildLocations(rc.getLocation(), BULLET_TREE_RADIUS, gardenRadius(), offsetForSpawningGap);
-
-        // Spawning gap should be whichever location in the garden is closest to the archon, which should result in the spawning gap
-        // facing the enemy.
-        MapLocation[] enemyArchon = rc.getInitialArchonLocations( rc.getTeam().opponent() );
-        Collections.sort(locations, (x, y) -> Float.compare( x.distanceTo(enemyArchon[0]), y.distanceTo(enemyArchon[0]) ));
-        spawningGap = locations.remove(0);
-        gardenTreeLocations = new HashSet(locations);
-
-        // Check all tree locations and plant a tree if it is missing (not yet planted or has been destroyed).
-        for (MapLocation treeLocation : gardenTreeLocations) {
-            rc.setIndicatorDot(treeLocation, 128, 0, 0);
-            Direction plantingLocation = rc.getLocation().directionTo(treeLocation);
-            if (rc.canPlantTree(plantingLocation)) {
-                rc.plantTree(plantingLocation);
+        // Every so often, check the trees we planted are still standing, and mark any which have been destroyed as missing.
+        if (context.getRoundNum() >= nextSlotCheckRound) {
+            for (int i = 0; i < slotTreeIds.length; i++) {
+                if (slotTreeIds[i] != 0 && !rc.canSenseTree(slotTreeIds[i])) {
+                    slotTreeIds[i] = 0;
+                }
             }
+            nextSlotCheckRound = context.getRoundNum() + SLOT_CHECK_INTERVAL;
+        }
 
+        // Nothing else to do if we couldn't plant a tree this turn anyway.
+        if (!rc.isBuildReady() || !rc.hasTreeBuildRequirements()) {
+            return;
+        }
+
+        // Plant a tree in the first missing slot we can, remembering its ID so we don't try that slot again.
+        for (int i = 0; i < slotTreeIds.length; i++) {
+            if (slotTreeIds[i] != 0) {
+                continue;
+            }
+            rc.setIndicatorDot(slotLocations[i], 128, 0, 0);
+            if (rc.canPlantTree(slotDirections[i])) {
+                rc.plantTree(slotDirections[i]);
+                Economy.recordSpend(rc, BULLET_TREE_COST);
+                TreeInfo tree = rc.senseTreeAtLocation(slotLocations[i]);
+                if (tree != null) {
+                    slotTreeIds[i] = tree.ID;
+                    wateringSchedule.add(tree, context.getRoundNum());
+                }
+                return;
+            }
         }
 
     }
 
     /**
-     * The gardener stays put and waters it's surrounding trees
+     * The gardener stays put and waters its thirstiest tree, going by the `WateringSchedule` rather than sensing them
+     * all every turn. Any of our trees in reach are looked after, including ones left behind by a neighbouring garden.
      *
      * @throws GameActionException
      */
     private void waterGarden() throws GameActionException {
 
-        // Get a list of all the trees in this garden, pick the first one then figure out which one
-        // is the weakest and finally water it.
-        TreeInfo[] gardenTrees = rc.senseNearbyTrees( rc.getLocation(), gardenRadius(), rc.getTeam() );
-
-        // If we've planted at least one tree already, we can try to water the weakest.
-        if (gardenTrees.length >= 1) {
-            TreeInfo weakestTree = gardenTrees[0]; // Start with the first tree
-            for (TreeInfo tree : gardenTrees) {
-                rc.setIndicatorDot(tree.location, 64, 128, 0);
-                if (tree.health < weakestTree.health) {
-                    weakestTree = tree;
-                }
-            }
+        int round = context.getRoundNum();
+        wateringSchedule.senseIfDue(round, context.getType().bodyRadius + INTERACTION_DIST_FROM_EDGE, context.getTeam());
 
-            if (rc.canWater(weakestTree.location)) {
-                rc.water(weakestTree.location);
-                rc.setIndicatorDot(weakestTree.location, 0, 128, 255);
-            }
+        int thirstiest = wateringSchedule.thirstiest(round);
+        if (thirstiest < 0) {
+            return;
+        }
+        if (rc.canWater(wateringSchedule.getId(thirstiest))) {
+            rc.water(wateringSchedule.getId(thirstiest));
+            wateringSchedule.watered(thirstiest, round);
+            rc.setIndicatorDot(wateringSchedule.getLocation(thirstiest), 0, 128, 255);
+        }
+        else if (rc.canWater()) {
+            // It's gone, or out of reach, so our picture of the garden is out of date.
+            wateringSchedule.senseSoon();
         }
 
     }
 
     /**
-     * The gardener searches for suitable locations to try and move towards
+     * The gardener searches for suitable locations to try and move towards, when there are no garden sites free.
      *
      * @throws GameActionException
      */
     private void searchForGardenLocation() throws GameActionException {
 
         // Look for some locations within sensor range that could fit our garden.
-        float distance = rc.getType().sensorRadius - gardenRadius() - 0.01f;
-        List<MapLocation> potentialLocations = getNSurroundingLocations(rc.getLocation(),12, distance, (float)(Math.random() * (Math.PI * 2)) );
+        float distance = context.getType().sensorRadius - gardenRadius() - 0.01f;
+        List<MapLocation> potentialLocations = getNSurroundingLocations(context.getLocation(),12, distance, rng.nextAngle() );
 
-        // Debug: show all potential spots in yellow and any good spots in green
+        // Head for the suitable spot furthest from the enemy. Spots the team already knows are blocked by trees are
+        // skipped without paying for any sensing.
+        // Debug: show all potential spots in yellow and any good spots in green.
+        MapLocation best = null;
         for (MapLocation location : potentialLocations) {
-            if( isSuitableLocation(location, -2.0f) ) {
+            if( !obstacleGrid.isBlocked(location) && isSuitableLocation(location, -2.0f) ) {
                 rc.setIndicatorDot(location, 64, 128, 0);
+                if( best == null || distanceToEnemyArchons(location) > distanceToEnemyArchons(best) ) {
+                    best = location;
+                }
             }
             else {
                 rc.setIndicatorDot(location, 255, 255, 0);
             }
         }
 
-        // Behaviour: iterate through the potential spots and set our destination to the first suitable looking one.
-        for (MapLocation location : potentialLocations) {
-            if ( isSuitableLocation(location, -2.0f) ) {
-                setDestination(location, rc.getType().bodyRadius * 3, 128, 255 , 0);
-            }
+        if( best != null ) {
+            setDestination(best, context.getType().bodyRadius * 3, 128, 255 , 0);
         }
 
-        // No good sites nearby, set indicator to red, and move randomly.
-//        tryMove( randomDirection() );
-//        rc.setIndicatorDot(rc.getLocation(), 128, 0, 0);
-
     }
 
     /**
@@ -236,16 +412,14 @@ public strictfp class Gardener extends BaseBot {
      * @return          true if the given location can fit a circle of `gardenRadius()` size and there are no other robots there.
      * @throws GameActionException
      */
-    private boolean isSuitableLocation(MapLocation location, float buffer) throws GameActionException {
-
-        try {
-            return rc.onTheMap(location, gardenRadius()) && !rc.isCircleOccupiedExceptByThisRobot(location, gardenRadius(buffer));
-        }
-        catch (Exception GameActionException) {
-            // Catches the following exception which was occasionally occurring.
-            //   battlecode.common.GameActionException: Target circle not completely within sensor range
-            return false;
-        }
+    // Package-private so the benchmarks can reach it.
+    boolean isSuitableLocation(MapLocation location, float buffer) throws GameActionException {
+
+        // Both checks throw if any of the circle is out of sensor range, and every exception costs 500 bytecodes, so
+        // anything we can't see all of is turned away up front.
+        float radius = Math.max(gardenRadius(), gardenRadius(buffer));
+        return rc.canSenseAllOfCircle(location, radius) &&
+                rc.onTheMap(location, gardenRadius()) && !rc.isCircleOccupiedExceptByThisRobot(location, gardenRadius(buffer));
     }
 
     /**
@@ -256,7 +430,7 @@ public strictfp class Gardener extends BaseBot {
      * @return        the radius of the garden
      */
     private float gardenRadius(float buffer) {
-        return BULLET_TREE_RADIUS + rc.getType().bodyRadius + buffer;
+        return BULLET_TREE_RADIUS + context.getType().bodyRadius + buffer;
     }
 
     /**
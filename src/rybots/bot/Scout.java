@@ -2,38 +2,278 @@ package rybots.bot;
 import battlecode.common.*;
 
 import rybots.utils.Comms;
+import rybots.utils.ExplorationGrid;
+import rybots.utils.RingBuffer;
 
 public strictfp class Scout extends BaseBot {
 
+    // Neutral trees with bullets in them keep them until shaken, so reports of them stay useful for a long while.
+    private static final int BULLET_TREE_MAX_AGE = 500;
+    private static final int MAX_BULLET_TREE_TARGETS = 8;
+
+    // How many rings of cells to search for somewhere new before checking the whole grid instead.
+    private static final int EXPLORATION_SEARCH_RINGS = 4;
+
+    // Rounds to spend trying to reach somewhere new, or a bullet tree, before writing it off as out of reach.
+    private static final int EXPLORATION_PATIENCE = 100;
+
+    private ExplorationGrid explorationGrid;
+    private RingBuffer enemySightings;
+    private RingBuffer bulletTrees;
+    private int[] newBulletTrees = new int[Comms.BULLET_TREES_COUNT];
+    private int lastSightingReportRound = -Soldier.SIGHTING_REPORT_INTERVAL;
+
+    // Bitset of bullet tree IDs already reported, so each is only pushed once.
+    private final int[] reportedTrees = new int[(GameConstants.MAX_ROBOT_ID >>> 5) + 1];
+
+    // Bitset of bullet tree IDs we've given up trying to reach.
+    private final int[] abandonedTrees = new int[(GameConstants.MAX_ROBOT_ID >>> 5) + 1];
+
+    // Reported bullet trees still to visit, and the closest bullet tree we can see this turn.
+    private final MapLocation[] bulletTreeTargets = new MapLocation[MAX_BULLET_TREE_TARGETS];
+    private int bulletTreeTargetCount = 0;
+    private TreeInfo nearestBulletTree = null;
+
+    // The bullet tree we're heading for, and the round to give up on it.
+    private MapLocation bulletTreeTarget = null;
+    private int bulletTreeDeadline = 0;
+
+    private MapLocation explorationTarget = null;
+    private int explorationDeadline = 0;
+    private MapLocation heading = null;
+
     public Scout(RobotController rc) {
         super(rc);
+        explorationGrid = new ExplorationGrid(rc);
+        enemySightings = new RingBuffer(rc, Comms.ENEMY_SIGHTINGS_CURSOR_CHANNEL, Comms.ENEMY_SIGHTINGS_CHANNEL,
+                Comms.ENEMY_SIGHTINGS_COUNT, Soldier.SIGHTING_MAX_AGE);
+        bulletTrees = new RingBuffer(rc, Comms.BULLET_TREES_CURSOR_CHANNEL, Comms.BULLET_TREES_CHANNEL,
+                Comms.BULLET_TREES_COUNT, BULLET_TREE_MAX_AGE);
+
+        registerPhase("findBulletTrees",    PRIORITY_HIGH,   600,  this::findBulletTrees);
+        registerPhase("reportEnemies",      PRIORITY_NORMAL, 300,  this::reportEnemies);
+        registerPhase("explore",            PRIORITY_NORMAL, 2500, this::explore);
+        registerPhase("shakeTrees",         PRIORITY_NORMAL, 50,   this::shakeTrees);
+        registerPhase("updateObstacleGrid", PRIORITY_LOW,    1500, this::updateObstacleGrid);
     }
 
     public final void sayHello() {
         System.out.println("Spawning: Scout");
     }
 
-    public final void takeTurn() throws GameActionException {
-        System.out.println("Spawning: Scout");
+    /**
+     * The scout looks for neutral trees with bullets in them, shaking one if it's close enough, and reports any it
+     * hasn't before so other scouts can come and shake them if it doesn't get there first.
+     *
+     * @throws GameActionException
+     */
+    private void findBulletTrees() throws GameActionException {
+        nearestBulletTree = null;
+        for (TreeInfo tree : context.getTrees()) {
+            if (tree.team != Team.NEUTRAL || tree.containedBullets == 0) {
+                continue;
+            }
+            if (rc.canShake(tree.ID)) {
+                rc.shake(tree.ID);
+                continue;
+            }
+            if (nearestBulletTree == null && (abandonedTrees[tree.ID >>> 5] & (1 << (tree.ID & 31))) == 0) {
+                nearestBulletTree = tree;
+            }
+            int reported = reportedTrees[tree.ID >>> 5];
+            int treeBit = 1 << (tree.ID & 31);
+            if ((reported & treeBit) == 0) {
+                reportedTrees[tree.ID >>> 5] = reported | treeBit;
+                bulletTrees.push(Comms.packCoarseLocation(tree.location));
+            }
+        }
 
-        // The code you want your robot to perform every round should be in this loop
-        while (true) {
+        // Pick up anything reported since last turn, including our own reports, to come back to later.
+        int count = bulletTrees.readNew(newBulletTrees);
+        for (int i = 0; i < count && bulletTreeTargetCount < MAX_BULLET_TREE_TARGETS; i++) {
+            bulletTreeTargets[bulletTreeTargetCount++] = Comms.unpackCoarseLocation(Comms.valueOf(newBulletTrees[i]));
+        }
+    }
 
-            // Try/catch blocks stop unhandled exceptions, which cause your robot to explode
-            try {
-                // Move randomly
-                tryMove(randomDirection());
+    /**
+     * The scout reports any enemy archon it can see, or failing that the middle of any enemy gardeners, so soldiers
+     * go after the enemy's economy rather than whatever happens to be nearest.
+     *
+     * @throws GameActionException
+     */
+    private void reportEnemies() throws GameActionException {
+        if (context.getRoundNum() - lastSightingReportRound < Soldier.SIGHTING_REPORT_INTERVAL) {
+            return;
+        }
 
-                // Broadcast that we're alive!
-                rc.broadcastBoolean( Comms.SCOUT_HEARTBEAT_CHANNEL, true );
+        float gardenersX = 0;
+        float gardenersY = 0;
+        int gardeners = 0;
+        MapLocation sighting = null;
+        for (RobotInfo enemy : context.getEnemies()) {
+            if (enemy.type == RobotType.ARCHON) {
+                sighting = enemy.location;
+                break;
+            }
+            if (enemy.type == RobotType.GARDENER) {
+                gardenersX += enemy.location.x;
+                gardenersY += enemy.location.y;
+                gardeners++;
+            }
+        }
+        if (sighting == null && gardeners > 0) {
+            sighting = new MapLocation(gardenersX / gardeners, gardenersY / gardeners);
+        }
 
-                // Clock.yield() makes the robot wait until the next turn, then it will perform this loop again
-                return;
+        if (sighting != null) {
+            enemySightings.push(Comms.packCoarseLocation(sighting));
+            lastSightingReportRound = context.getRoundNum();
+        }
+    }
+
+    /**
+     * The scout marks what it can see as explored, then heads for the nearest bullet tree it can see, or one that's
+     * been reported (see `chooseBulletTreeTarget`), or failing that the nearest part of the map nobody has explored
+     * yet.
+     *
+     * @throws GameActionException
+     */
+    private void explore() throws GameActionException {
+        MapLocation myLocation = context.getLocation();
+        float sensorRadius = rc.getType().sensorRadius;
+        explorationGrid.markSeen(myLocation, sensorRadius);
 
-            } catch (Exception e) {
-                System.out.println("Scout Exception");
-                e.printStackTrace();
+        // Forget any reported trees we're now close enough to see. If they still have bullets, we'll spot them.
+        for (int i = bulletTreeTargetCount - 1; i >= 0; i--) {
+            if (myLocation.distanceTo(bulletTreeTargets[i]) < sensorRadius - 1) {
+                bulletTreeTargets[i] = bulletTreeTargets[--bulletTreeTargetCount];
             }
         }
+
+        MapLocation destination = chooseBulletTreeTarget(myLocation);
+        if (destination == null) {
+            destination = chooseExplorationTarget(myLocation);
+        }
+
+        if (destination == null) {
+            patrol();
+            return;
+        }
+
+        // Bug navigation state only makes sense for the destination it was built up for.
+        if (!destination.equals(heading)) {
+            clearDestination();
+            heading = destination;
+        }
+        navigateTo(destination);
+    }
+
+    /**
+     * Shakes the nearest bullet tree, if the scout moved close enough to it this turn.
+     *
+     * @throws GameActionException
+     */
+    private void shakeTrees() throws GameActionException {
+        if (nearestBulletTree != null && rc.canShake(nearestBulletTree.ID)) {
+            rc.shake(nearestBulletTree.ID);
+        }
+    }
+
+    /**
+     * Heads for the nearest bullet tree we can see, or failing that sticks with the reported tree we're already
+     * heading for, or picks the nearest one. Like an exploration target, a tree which can't be reached in
+     * `EXPLORATION_PATIENCE` rounds, such as one walled in by other trees, is given up on for good.
+     *
+     * @return the bullet tree to head for, or null if there are none
+     */
+    private MapLocation chooseBulletTreeTarget(MapLocation from) {
+        MapLocation target;
+        int reported = -1;
+        if (nearestBulletTree != null) {
+            target = nearestBulletTree.location;
+        }
+        else {
+            reported = indexOfBulletTreeTarget(bulletTreeTarget);
+            if (reported < 0) {
+                reported = nearestBulletTreeTarget(from);
+            }
+            target = reported < 0 ? null : bulletTreeTargets[reported];
+        }
+
+        if (target == null || !target.equals(bulletTreeTarget)) {
+            bulletTreeTarget = target;
+            bulletTreeDeadline = context.getRoundNum() + EXPLORATION_PATIENCE;
+            return target;
+        }
+        if (context.getRoundNum() < bulletTreeDeadline) {
+            return target;
+        }
+
+        if (nearestBulletTree != null) {
+            abandonedTrees[nearestBulletTree.ID >>> 5] |= 1 << (nearestBulletTree.ID & 31);
+        }
+        else {
+            bulletTreeTargets[reported] = bulletTreeTargets[--bulletTreeTargetCount];
+        }
+        bulletTreeTarget = null;
+        return null;
+    }
+
+    /**
+     * @return the index of the nearest reported bullet tree, or -1 if there are none
+     */
+    private int nearestBulletTreeTarget(MapLocation from) {
+        int nearest = -1;
+        float nearestDistance = Float.MAX_VALUE;
+        for (int i = 0; i < bulletTreeTargetCount; i++) {
+            float distance = from.distanceTo(bulletTreeTargets[i]);
+            if (distance < nearestDistance) {
+                nearest = i;
+                nearestDistance = distance;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * @return the index of a reported bullet tree, or -1 if it isn't one or has since been dropped
+     */
+    private int indexOfBulletTreeTarget(MapLocation location) {
+        if (location != null) {
+            for (int i = 0; i < bulletTreeTargetCount; i++) {
+                if (bulletTreeTargets[i].equals(location)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Keeps the current exploration target until somebody has seen it, then picks the nearest unexplored cell. When
+     * there are none left, the sweep starts again.
+     * <p>
+     * A target is written off, by marking it as visited, if an edge of the map found since puts it off the map, or it
+     * can't be reached in `EXPLORATION_PATIENCE` rounds.
+     *
+     * @return where to explore next, or null if there's nowhere this turn
+     */
+    private MapLocation chooseExplorationTarget(MapLocation from) throws GameActionException {
+        if (explorationTarget != null && !explorationGrid.isVisited(explorationTarget)) {
+            if (context.getRoundNum() < explorationDeadline && mapBounds.contains(explorationTarget, 0)) {
+                return explorationTarget;
+            }
+            explorationGrid.markVisited(explorationTarget);
+        }
+
+        explorationDeadline = context.getRoundNum() + EXPLORATION_PATIENCE;
+        explorationTarget = explorationGrid.nearestUnvisited(from, mapBounds, EXPLORATION_SEARCH_RINGS);
+        if (explorationTarget == null) {
+            explorationTarget = explorationGrid.anyUnvisited(mapBounds);
+        }
+        if (explorationTarget == null) {
+            explorationGrid.clear();
+        }
+        return explorationTarget;
     }
 }
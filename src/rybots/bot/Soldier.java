@@ -1,41 +1,57 @@
 package rybots.bot;
 
 import rybots.utils.Comms;
+import rybots.utils.EvasionPlanner;
+import rybots.utils.FireControl;
+import rybots.utils.RingBuffer;
 
 import battlecode.common.*;
 
-import java.util.Random;
-import java.util.List;
-import java.util.ArrayList;
-import java.util.Collections;
-
 public strictfp class Soldier extends BaseBot {
 
-    private Team enemy;
+    // Sightings older than this are ignored, and each soldier reports at most one sighting per interval so a big fight
+    // doesn't flood the queue with the same enemy. Archons report sightings too, on the same terms.
+    static final int SIGHTING_MAX_AGE         = 20;
+    static final int SIGHTING_REPORT_INTERVAL = 3;
+
+    // Leave enough bytecodes after dodging to still get a shot off.
+    private static final int EVASION_BYTECODE_FLOOR = 2000;
+
+    private EvasionPlanner evasionPlanner;
+    private FireControl fireControl;
+    private RingBuffer enemySightings;
+    private int[] newSightings = new int[Comms.ENEMY_SIGHTINGS_COUNT];
+    private int lastSightingReportRound = -SIGHTING_REPORT_INTERVAL;
+    private MapLocation troubleLocation = null;
+    private int troubleRound = 0;
 
     public Soldier(RobotController rc) {
         super(rc);
-        enemy = rc.getTeam().opponent();
+        evasionPlanner = new EvasionPlanner(rc, EVASION_BYTECODE_FLOOR);
+        fireControl = new FireControl(rc);
+        enemySightings = new RingBuffer(rc, Comms.ENEMY_SIGHTINGS_CURSOR_CHANNEL, Comms.ENEMY_SIGHTINGS_CHANNEL,
+                Comms.ENEMY_SIGHTINGS_COUNT, SIGHTING_MAX_AGE);
+
+        registerPhase("dodgeIncomingFire",        PRIORITY_CRITICAL, 1500, this::dodgeIncomingFire);
+        registerPhase("shootAtEnemies",           PRIORITY_CRITICAL, 1500, this::shootAtEnemies);
+        registerPhase("lookForTrouble",           PRIORITY_HIGH,     100,  this::lookForTrouble);
+        registerPhase("continueToDestination",    PRIORITY_HIGH,     2000, this::continueToDestination);
+        registerPhase("drawDestinationIndicator", PRIORITY_LOW,      50,   this::drawDestinationIndicator);
+        registerPhase("patrol",                   PRIORITY_LOW,      800,  this::patrol);
+        registerPhase("updateObstacleGrid",       PRIORITY_LOW,      1500, this::updateObstacleGrid);
     }
 
     public final void sayHello() throws GameActionException {
         System.out.println("Spawning: Soldier");
 
         // Choose a random rally point, determine the coordinates and set it as our destination.
-        rallyPoint = new Random().nextInt(3);
-
-        Float x = rc.readBroadcastFloat((int)Comms.SOLDIER_RALLY_POINTS.get(rallyPoint).get("x"));
-        Float y = rc.readBroadcastFloat((int)Comms.SOLDIER_RALLY_POINTS.get(rallyPoint).get("y"));
+        rallyPoint = rng.nextInt(Comms.SOLDIER_RALLY_POINTS_COUNT);
 
-        setDestination(new MapLocation(x, y), rc.getType().bodyRadius * 2, 64, 0 , 128);
-    }
+        MapLocation rallyLocation = Comms.readLocation(rc, Comms.SOLDIER_RALLY_POINTS_CHANNEL + rallyPoint);
 
-    public final void takeTurn() throws GameActionException {
-        dodgeIncomingFire();
-        shootAtEnemies();
-        lookForTrouble();
-        continueToDestination();
-        patrol();
+        if (rallyLocation != null) {
+            setDestination(rallyLocation, rc.getType().bodyRadius * 2, 64, 0 , 128);
+        }
     }
 
     /**
@@ -44,53 +60,36 @@ public strictfp class Soldier extends BaseBot {
      * @throws GameActionException
      */
     private void dodgeIncomingFire() throws GameActionException {
-        if (turnEnded) {
-            return;
-        }
-
-        // Todo: collect a list of bullets that will collide, and sort by distance to robot, closest one is evaded first...
-
-        // See if there are any nearby bullets.
-        BulletInfo[] bullets = rc.senseNearbyBullets(2.0f);
-
-        // If there are some...
-        if (bullets.length > 0) {
-            for (BulletInfo bullet : bullets) {
-                // And the path of the bullet suggests it will collide with me.
-                if (willCollideWithMe(bullet)) {
-                    rc.setIndicatorLine(bullet.location, bullet.location.add(bullet.dir, 5.0f), 255, 102, 102);
-                    takeEvasiveAction(bullet);
-                    endTurn();
-                }
-            }
+        // Consider every bullet which could hit us, and step to wherever is expected to take the least damage.
+        // We don't end the turn afterwards, so the soldier can still return fire from its new spot.
+        if (evasionPlanner.evade(context.getLocation(), context.getThreateningBullets())) {
+            context.moved();
         }
     }
 
     /**
-     * The soldier stays put and fires at nearby enemy soldiers.
+     * The soldier stays put and fires at nearby enemies, if it has a shot worth taking.
      *
      * @throws GameActionException
      */
     private void shootAtEnemies() throws GameActionException {
-        if (turnEnded) {
-            return;
-        }
-
         // See if there are any nearby enemy robots
-        RobotInfo[] robots = rc.senseNearbyRobots(-1, enemy);
+        RobotInfo[] robots = context.getEnemies();
 
         // If there are some...
         if (robots.length > 0) {
 
             // Report the location for other soldiers to read
-            rc.broadcastFloat(Comms.SOLDIER_ENEMY_SPOTTED_X_CHANNEL, robots[0].location.x);
-            rc.broadcastFloat(Comms.SOLDIER_ENEMY_SPOTTED_Y_CHANNEL, robots[0].location.y);
-
-            // And we have enough bullets, and haven't attacked yet this turn...
-            if (rc.canFireTriadShot()) {
-                // ...Then fire a bullet in the direction of the enemy.
-                rc.fireTriadShot(rc.getLocation().directionTo(robots[0].location));
+            if (context.getRoundNum() - lastSightingReportRound >= SIGHTING_REPORT_INTERVAL) {
+                enemySightings.push(Comms.packCoarseLocation(robots[0].location));
+                lastSightingReportRound = context.getRoundNum();
             }
+
+            // Keep track of how the enemies are moving, then take the best shot at one of them, if there is one
+            // which isn't blocked and is likely enough to hit to be worth the bullets.
+            fireControl.track(robots, context.getRoundNum());
+            fireControl.engage(context.getLocation(), robots, context.getAllies(), context.getTrees());
+
             // End turn so the robot stays near these enemies until they are destroyed.
             endTurn();
         }
@@ -102,52 +101,27 @@ public strictfp class Soldier extends BaseBot {
      * @throws GameActionException
      */
     private void lookForTrouble() throws GameActionException {
-        if (turnEnded) {
-            return;
-        }
-
-        if (currentDestination == null) {
-            // See if there are any coordinates broadcasted yet and set them as our current destination
-            // if there are.
-            Float x = rc.readBroadcastFloat(Comms.SOLDIER_ENEMY_SPOTTED_X_CHANNEL);
-            Float y = rc.readBroadcastFloat(Comms.SOLDIER_ENEMY_SPOTTED_Y_CHANNEL);
+        MapLocation myLocation = context.getLocation();
 
-            if (x != 0.0 && y != 0.0) {
-                setDestination(new MapLocation(x, y), rc.getType().bodyRadius * 4);
-            }
+        // Forget about trouble we've been sitting on for too long, it has probably moved on.
+        if (troubleLocation != null && context.getRoundNum() - troubleRound > SIGHTING_MAX_AGE) {
+            troubleLocation = null;
         }
-    }
-
-    /**
-     * The solider attempts to evade an incoming bullet which is on a collision course
-     *
-     * @param bullet The bullet in question
-     * @throws GameActionException
-     */
-    private void takeEvasiveAction(BulletInfo bullet) throws GameActionException {
-
-        // TODO: Consider all nearby bullets for evasion = try to work out the best spot.
-
-        List<Direction> evadeDirections = new ArrayList<>();
-
-        evadeDirections.add( bullet.dir.rotateRightDegrees(110) );
-        evadeDirections.add( bullet.dir.rotateLeftDegrees(110) );
-        evadeDirections.add( bullet.dir.rotateRightDegrees(70) );
-        evadeDirections.add( bullet.dir.rotateLeftDegrees(70) );
-
-//        Collections.shuffle(evadeDirections);
 
-        for( Direction direction : evadeDirections ) {
-            if (canMove(direction)) {
-                tryMove(direction);
-                return;
+        // Only read the sightings reported since our last turn, keeping whichever is closest to us.
+        int count = enemySightings.readNew(newSightings);
+        for (int i = 0; i < count; i++) {
+            MapLocation sighting = Comms.unpackCoarseLocation(newSightings[i]);
+            if (troubleLocation == null || myLocation.distanceTo(sighting) < myLocation.distanceTo(troubleLocation)) {
+                troubleLocation = sighting;
+                troubleRound = Comms.roundOf(newSightings[i]);
             }
         }
 
-        // If all else fails, charge toward the source of the bullet!
-        if (canMove( bullet.dir.opposite() )) {
-            tryMove( bullet.dir.opposite() );
-            return;
+        // If we're not already heading somewhere, go and help out.
+        if (currentDestination == null && troubleLocation != null) {
+            setDestination(troubleLocation, context.getType().bodyRadius * 4);
+            troubleLocation = null;
         }
     }
 
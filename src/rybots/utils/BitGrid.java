@@ -0,0 +1,103 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * A coarse grid over the map shared by the whole team, stored as a bitset in the broadcast array, one bit per cell.
+ * <p>
+ * Cells are `cellSize` units square. The grid is centred on our first archon's starting location and is wide enough
+ * to cover the largest possible map in any direction, so every robot can work out the same layout without any
+ * coordination. Cell `cellY * gridSize + cellX` is bit `cell & 31` of channel `firstChannel + (cell >>> 5)`.
+ * <p>
+ * What a set bit means is up to each subclass, see `ObstacleGrid` and `ExplorationGrid`.
+ */
+public abstract strictfp class BitGrid {
+
+    protected final RobotController rc;
+    protected final float cellSize;
+    protected final int gridSize; // Cells along each side.
+    protected final int firstChannel;
+    protected final int channels;
+    protected final float originX;
+    protected final float originY;
+
+    /**
+     * @param rc           the RobotController to broadcast with
+     * @param cellSize     how many units square each cell is
+     * @param firstChannel the first of the `channelsFor(cellSize)` channels the grid is stored in
+     */
+    protected BitGrid(RobotController rc, float cellSize, int firstChannel) {
+        this.rc = rc;
+        this.cellSize = cellSize;
+        this.gridSize = sizeFor(cellSize);
+        this.firstChannel = firstChannel;
+        this.channels = channelsFor(cellSize);
+        MapLocation anchor = rc.getInitialArchonLocations(rc.getTeam())[0];
+        originX = anchor.x - GameConstants.MAP_MAX_WIDTH;
+        originY = anchor.y - GameConstants.MAP_MAX_HEIGHT;
+    }
+
+    /**
+     * @param cellSize how many units square each cell is
+     * @return how many cells there are along each side of a grid with cells that size
+     */
+    public static int sizeFor(float cellSize) {
+        return 2 * GameConstants.MAP_MAX_WIDTH / (int) cellSize;
+    }
+
+    /**
+     * @param cellSize how many units square each cell is
+     * @return how many broadcast channels a grid with cells that size takes
+     */
+    public static int channelsFor(float cellSize) {
+        int size = sizeFor(cellSize);
+        return (size * size + 31) / 32;
+    }
+
+    /**
+     * Clears every cell in the grid.
+     *
+     * @throws GameActionException
+     */
+    public void clear() throws GameActionException {
+        for (int channel = 0; channel < channels; channel++) {
+            rc.broadcastInt(firstChannel + channel, 0);
+        }
+    }
+
+    /**
+     * @return the index of the cell containing a location, or -1 if it's outside the grid
+     */
+    protected int cellOf(MapLocation location) {
+        int cellX = (int) ((location.x - originX) / cellSize);
+        int cellY = (int) ((location.y - originY) / cellSize);
+        return inGrid(cellX, cellY) ? cellY * gridSize + cellX : -1;
+    }
+
+    protected boolean inGrid(int cellX, int cellY) {
+        return cellX >= 0 && cellY >= 0 && cellX < gridSize && cellY < gridSize;
+    }
+
+    /**
+     * Checks a single cell's bit. Costs one broadcast read.
+     */
+    protected boolean isSet(int cell) throws GameActionException {
+        return (rc.readBroadcastInt(firstChannel + (cell >>> 5)) & (1 << (cell & 31))) != 0;
+    }
+
+    /**
+     * Sets the bit for a single cell, only broadcasting if it wasn't already set.
+     */
+    protected void setCell(int cell) throws GameActionException {
+        int channel = firstChannel + (cell >>> 5);
+        int bits = rc.readBroadcastInt(channel);
+        int updated = bits | (1 << (cell & 31));
+        if (updated != bits) {
+            rc.broadcastInt(channel, updated);
+        }
+    }
+
+    protected MapLocation centreOf(int cellX, int cellY) {
+        return new MapLocation(originX + (cellX + 0.5f) * cellSize, originY + (cellY + 0.5f) * cellSize);
+    }
+}
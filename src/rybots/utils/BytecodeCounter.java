@@ -0,0 +1,43 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * Where the bots read how many bytecodes they have used and have left this turn, rather than asking `Clock` directly,
+ * so the simulator in the tests can answer instead of the engine.
+ * <p>
+ * In a match, this just asks `Clock`. The simulator doesn't count bytecodes, so it pins the figures with
+ * `debug_pinBytecodesLeft` before each turn. Like every `debug_` method, that call is stripped from tournament
+ * matches, so nothing can pin the figures there.
+ */
+public strictfp class BytecodeCounter {
+
+    // -1 unless pinned.
+    private static int pinnedLeft = -1;
+    private static int pinnedLimit;
+
+    /**
+     * @return how many bytecodes the robot has left this turn
+     */
+    public static int getBytecodesLeft() {
+        return pinnedLeft < 0 ? Clock.getBytecodesLeft() : pinnedLeft;
+    }
+
+    /**
+     * @return how many bytecodes the robot has used so far this turn
+     */
+    public static int getBytecodeNum() {
+        return pinnedLeft < 0 ? Clock.getBytecodeNum() : pinnedLimit - pinnedLeft;
+    }
+
+    /**
+     * Fixes the figures reported from now on, for running bots outside of the engine.
+     *
+     * @param limit how many bytecodes the robot gets each turn
+     * @param left  how many bytecodes to report as left, however many have been used
+     */
+    public static void debug_pinBytecodesLeft(int limit, int left) {
+        pinnedLimit = limit;
+        pinnedLeft = left;
+    }
+}
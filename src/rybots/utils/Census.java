@@ -0,0 +1,102 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * Counts how many of each type of robot the team has, through the broadcast array, so anyone can tell what's been
+ * lost and react to it the next round.
+ * <p>
+ * Every robot counts itself in once a turn, adding one to the counter for its type. There are two sets of counters,
+ * one for even rounds and one for odd, so while this round's counts are going up, last round's are complete and can be
+ * read. Each counter is stamped with its round (see `Comms.stamp`), so the first robot to count itself in on a new
+ * round can tell the old count is stale and start again from zero, without anyone having to clear the counters.
+ * The first robot of each type to count in also records the team's tree count.
+ * <p>
+ * That's one read and one write per robot per turn, however big the team gets.
+ */
+public strictfp class Census {
+
+    // A counter for each robot type, then one for trees.
+    public static final int SLOTS = RobotType.values().length + 1;
+    private static final int TREES = SLOTS - 1;
+
+    private final RobotController rc;
+    private final int slot;
+
+    /**
+     * @param rc the RobotController for this robot
+     */
+    public Census(RobotController rc) {
+        this.rc = rc;
+        this.slot = rc.getType().ordinal();
+    }
+
+    /**
+     * Counts this robot in for the round. Every robot should call this once a turn.
+     *
+     * @param round the current round
+     * @throws GameActionException
+     */
+    public void countIn(int round) throws GameActionException {
+        int buffer = bufferFor(round);
+        if (add(buffer + slot, round, 1) == 1 && Comms.roundOf(rc.readBroadcastInt(buffer + TREES)) != round) {
+            rc.broadcastInt(buffer + TREES, Comms.stamp(round, rc.getTreeCount()));
+        }
+    }
+
+    /**
+     * Counts in a robot which has just been built, as it won't get a turn to count itself in until next round.
+     *
+     * @param type  the type of robot built
+     * @param round the current round
+     * @throws GameActionException
+     */
+    public void countBuilt(RobotType type, int round) throws GameActionException {
+        add(bufferFor(round) + type.ordinal(), round, 1);
+    }
+
+    /**
+     * @param type the type of robot to count
+     * @return how many of them the team had last round
+     * @throws GameActionException
+     */
+    public int count(RobotType type) throws GameActionException {
+        return read(type.ordinal(), rc.getRoundNum() - 1);
+    }
+
+    /**
+     * @param type the type of robot to count
+     * @return how many of them have been counted in so far this round, which won't be all of them
+     * @throws GameActionException
+     */
+    public int countSoFar(RobotType type) throws GameActionException {
+        return read(type.ordinal(), rc.getRoundNum());
+    }
+
+    /**
+     * @return how many trees the team had last round
+     * @throws GameActionException
+     */
+    public int getTreeCount() throws GameActionException {
+        return read(TREES, rc.getRoundNum() - 1);
+    }
+
+    private int read(int index, int round) throws GameActionException {
+        int stamped = rc.readBroadcastInt(bufferFor(round) + index);
+        return Comms.roundOf(stamped) == round ? Comms.valueOf(stamped) : 0;
+    }
+
+    /**
+     * @return the new count
+     */
+    private int add(int channel, int round, int amount) throws GameActionException {
+        int stamped = rc.readBroadcastInt(channel);
+        int count = (Comms.roundOf(stamped) == round ? Comms.valueOf(stamped) : 0) + amount;
+        rc.broadcastInt(channel, Comms.stamp(round, count));
+        return count;
+    }
+
+    private static int bufferFor(int round) {
+        return Comms.CENSUS_CHANNEL + (round & 1) * SLOTS;
+    }
+}
@@ -1,60 +1,221 @@
 package rybots.utils;
 
-import java.util.Map;
-import java.util.HashMap;
+import battlecode.common.*;
 
-public class Comms {
+/**
+ * The layout of the team's broadcast array, along with helpers to read and write packed values.
+ * <p>
+ * Every channel is a plain int offset, so looking one up costs a single constant load rather than a hash lookup.
+ * Blocks of channels are described by a `_CHANNEL` start offset and a `_COUNT` size, and must be listed in `LAYOUT`
+ * so `debug_checkLayout` can catch any which overlap.
+ * <p>
+ * Locations are packed into a single int as 16 bit fixed point x/y values, so they take one broadcast rather than two.
+ * Values which need to expire can be stamped with the round they were written in, which lives in the high bits.
+ */
+public strictfp class Comms {
 
     public static final int GARDENERS_BUILD_GARDENS_CHANNEL = 1;
-    public static final int SCOUT_CONSTRUCTION_ENABLED      = 4;
-    public static final int SCOUT_HEARTBEAT_CHANNEL         = 5;
-    public static final int SOLDIER_ENEMY_SPOTTED_X_CHANNEL = 10;
-    public static final int SOLDIER_ENEMY_SPOTTED_Y_CHANNEL = 11;
-
-    public static final Map<Integer, HashMap> SOLDIER_RALLY_POINTS = new HashMap<Integer, HashMap>() {
-        {
-            put(0, new HashMap<String, Integer>() {
-                {
-                    put("x", 100);
-                    put("y", 101);
-                }
-            });
-            put(1, new HashMap<String, Integer>() {
-                {
-                    put("x", 102);
-                    put("y", 103);
-                }
-            });
-            put(2, new HashMap<String, Integer>() {
-                {
-                    put("x", 104);
-                    put("y", 105);
-                }
-            });
-        }
+    public static final int ENEMY_SIGHTINGS_CURSOR_CHANNEL  = 10;
+    public static final int ARCHON_LEADER_CHANNEL           = 11; // Stamped ID, see `LeaderElection`.
+    public static final int BULLET_TREES_CURSOR_CHANNEL     = 12;
+
+    // Which edges of the map have been found, then where each one is, see `MapBounds`.
+    public static final int MAP_BOUNDS_CHANNEL = 4;
+    public static final int MAP_BOUNDS_COUNT   = 5;
+
+    // Running averages of bullet income and spending, see `Economy`.
+    public static final int ECONOMY_CHANNEL = 20;
+    public static final int ECONOMY_COUNT   = 6;
+
+    // Two sets of stamped counts of each robot type and trees, for odd and even rounds, see `Census`.
+    public static final int CENSUS_CHANNEL = 30;
+    public static final int CENSUS_COUNT   = 2 * Census.SLOTS;
+
+    // One bit per cell, see `ExplorationGrid`.
+    public static final int EXPLORATION_GRID_CHANNEL = 50;
+    public static final int EXPLORATION_GRID_COUNT   = BitGrid.channelsFor(ExplorationGrid.CELL_SIZE);
+
+    // Packed locations, see `packLocation`.
+    public static final int SOLDIER_RALLY_POINTS_CHANNEL  = 100;
+    public static final int SOLDIER_RALLY_POINTS_COUNT    = 3;
+    public static final int GARDENER_RALLY_POINTS_CHANNEL = 103;
+    public static final int GARDENER_RALLY_POINTS_COUNT   = 3;
+
+    // Ring buffer of stamped coarse locations, see `RingBuffer` and `packCoarseLocation`.
+    public static final int ENEMY_SIGHTINGS_CHANNEL = 200;
+    public static final int ENEMY_SIGHTINGS_COUNT   = 32;
+    public static final int BULLET_TREES_CHANNEL    = 240;
+    public static final int BULLET_TREES_COUNT      = 16;
+
+    // Stamped IDs of the gardeners which have claimed each garden site, see `GardenSites`.
+    public static final int GARDEN_SITES_CHANNEL = 300;
+    public static final int GARDEN_SITES_COUNT   = GameConstants.NUMBER_OF_ARCHONS_MAX * GardenSites.SITES_PER_ARCHON;
+
+    // One bit per cell, see `ObstacleGrid`.
+    public static final int OBSTACLE_GRID_CHANNEL = 1000;
+    public static final int OBSTACLE_GRID_COUNT   = BitGrid.channelsFor(ObstacleGrid.CELL_SIZE);
+
+    // Start and size of every channel or block of channels above. Keep this up to date when adding channels!
+    private static final int[][] LAYOUT = {
+            { GARDENERS_BUILD_GARDENS_CHANNEL, 1 },
+            { ENEMY_SIGHTINGS_CURSOR_CHANNEL, 1 },
+            { ARCHON_LEADER_CHANNEL, 1 },
+            { BULLET_TREES_CURSOR_CHANNEL, 1 },
+            { MAP_BOUNDS_CHANNEL, MAP_BOUNDS_COUNT },
+            { ECONOMY_CHANNEL, ECONOMY_COUNT },
+            { CENSUS_CHANNEL, CENSUS_COUNT },
+            { EXPLORATION_GRID_CHANNEL, EXPLORATION_GRID_COUNT },
+            { SOLDIER_RALLY_POINTS_CHANNEL, SOLDIER_RALLY_POINTS_COUNT },
+            { GARDENER_RALLY_POINTS_CHANNEL, GARDENER_RALLY_POINTS_COUNT },
+            { ENEMY_SIGHTINGS_CHANNEL, ENEMY_SIGHTINGS_COUNT },
+            { BULLET_TREES_CHANNEL, BULLET_TREES_COUNT },
+            { GARDEN_SITES_CHANNEL, GARDEN_SITES_COUNT },
+            { OBSTACLE_GRID_CHANNEL, OBSTACLE_GRID_COUNT },
     };
 
-    public static final Map<Integer, HashMap> GARDENER_RALLY_POINTS = new HashMap<Integer, HashMap>() {
-        {
-            put(0, new HashMap<String, Integer>() {
-                {
-                    put("x", 106);
-                    put("y", 107);
-                }
-            });
-            put(1, new HashMap<String, Integer>() {
-                {
-                    put("x", 108);
-                    put("y", 109);
-                }
-            });
-            put(2, new HashMap<String, Integer>() {
-                {
-                    put("x", 110);
-                    put("y", 111);
+    // Map coordinates never exceed 600 (a 500 offset plus a 100 wide map), so 1/64th precision fits in 16 bits.
+    private static final float LOCATION_SCALE = 64.0f;
+    private static final int   LOCATION_MASK  = 0xFFFF;
+    private static final float LOCATION_MAX   = (LOCATION_MASK - 1) / LOCATION_SCALE;
+
+    // Coarse locations round to the nearest whole unit, 10 bits each for x and y, so they fit alongside a round stamp.
+    private static final int COARSE_MASK = 0x3FF;
+
+    // Stamped values keep the round number in the top 12 bits (enough for 3000 rounds) and the value in the rest.
+    private static final int STAMP_SHIFT = 20;
+    private static final int VALUE_MASK  = (1 << STAMP_SHIFT) - 1;
+
+    /**
+     * Checks every block in `LAYOUT` fits in the broadcast array and doesn't overlap any other block.
+     * Stripped from tournament builds, as it's a `debug_` method.
+     *
+     * @throws IllegalStateException if the layout is broken
+     */
+    public static void debug_checkLayout() {
+        for (int i = 0; i < LAYOUT.length; i++) {
+            int start = LAYOUT[i][0];
+            int end   = start + LAYOUT[i][1];
+            if (start < 0 || end > GameConstants.BROADCAST_MAX_CHANNELS) {
+                throw new IllegalStateException("Channels " + start + "-" + (end - 1) + " are outside the broadcast array");
+            }
+            for (int j = i + 1; j < LAYOUT.length; j++) {
+                int otherStart = LAYOUT[j][0];
+                int otherEnd   = otherStart + LAYOUT[j][1];
+                if (start < otherEnd && otherStart < end) {
+                    throw new IllegalStateException("Channels " + start + "-" + (end - 1) +
+                            " overlap channels " + otherStart + "-" + (otherEnd - 1));
                 }
-            });
+            }
         }
-    };
+    }
+
+    /**
+     * Packs a location into a single int, x in the high 16 bits and y in the low 16 bits.
+     * Zero is never a valid packed location, so an unwritten channel reads back as no location.
+     * Coordinates are clamped to what fits, between 0 and just under 1024, as anything outside that would wrap round
+     * to a different location which looks perfectly valid. Guesses such as the initial `MapBounds` can stray there.
+     *
+     * @param location the MapLocation to pack
+     * @return the packed location
+     */
+    public static int packLocation(MapLocation location) {
+        int x = (int) (clamp(location.x, LOCATION_MAX) * LOCATION_SCALE) + 1;
+        int y = (int) (clamp(location.y, LOCATION_MAX) * LOCATION_SCALE) + 1;
+        return ((x & LOCATION_MASK) << 16) | (y & LOCATION_MASK);
+    }
+
+    /**
+     * Unpacks a location packed by `packLocation`.
+     *
+     * @param packed the packed location
+     * @return the MapLocation, or null if nothing has been packed
+     */
+    public static MapLocation unpackLocation(int packed) {
+        if (packed == 0) {
+            return null;
+        }
+        return new MapLocation(
+                (((packed >>> 16) & LOCATION_MASK) - 1) / LOCATION_SCALE,
+                ((packed & LOCATION_MASK) - 1) / LOCATION_SCALE
+        );
+    }
+
+    /**
+     * Packs a location to the nearest whole unit into 20 bits, x in the high 10 bits and y in the low 10 bits.
+     * Small enough to be stamped with `stamp`, for values like enemy sightings which don't need to be precise.
+     * Coordinates are clamped between 0 and 1023, like `packLocation`.
+     *
+     * @param location the MapLocation to pack
+     * @return the packed location
+     */
+    public static int packCoarseLocation(MapLocation location) {
+        int x = Math.round(clamp(location.x, COARSE_MASK));
+        int y = Math.round(clamp(location.y, COARSE_MASK));
+        return ((x & COARSE_MASK) << 10) | (y & COARSE_MASK);
+    }
+
+    /**
+     * Unpacks a location packed by `packCoarseLocation`.
+     *
+     * @param packed the packed location, with or without a round stamp
+     * @return the MapLocation
+     */
+    public static MapLocation unpackCoarseLocation(int packed) {
+        return new MapLocation((packed >>> 10) & COARSE_MASK, packed & COARSE_MASK);
+    }
+
+    /**
+     * Packs a value alongside the round it was written in, so readers can tell how old it is.
+     *
+     * @param round the current round number
+     * @param value a value between 0 and 2^20 - 1
+     * @return the stamped value
+     */
+    public static int stamp(int round, int value) {
+        return (round << STAMP_SHIFT) | (value & VALUE_MASK);
+    }
+
+    /**
+     * @param stamped a value packed with `stamp`
+     * @return the round the value was written in
+     */
+    public static int roundOf(int stamped) {
+        return stamped >>> STAMP_SHIFT;
+    }
+
+    /**
+     * @param stamped a value packed with `stamp`
+     * @return the value without its round stamp
+     */
+    public static int valueOf(int stamped) {
+        return stamped & VALUE_MASK;
+    }
+
+    /**
+     * Broadcasts a location on a single channel.
+     *
+     * @param rc       the RobotController to broadcast with
+     * @param channel  the channel to write
+     * @param location the MapLocation to write
+     * @throws GameActionException
+     */
+    public static void writeLocation(RobotController rc, int channel, MapLocation location) throws GameActionException {
+        rc.broadcastInt(channel, packLocation(location));
+    }
+
+    /**
+     * Reads a location written by `writeLocation`.
+     *
+     * @param rc      the RobotController to read with
+     * @param channel the channel to read
+     * @return the MapLocation, or null if nothing has been written yet
+     * @throws GameActionException
+     */
+    public static MapLocation readLocation(RobotController rc, int channel) throws GameActionException {
+        return unpackLocation(rc.readBroadcastInt(channel));
+    }
 
+    private static float clamp(float value, float max) {
+        return value < 0 ? 0 : (value > max ? max : value);
+    }
 }
@@ -0,0 +1,171 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * Lookup tables of quantised Directions and their sines and cosines, plus a small cache of unit vectors for rings of
+ * evenly spaced points.
+ * <p>
+ * Creating a Direction or calling a trig function costs bytecodes every time, and movement and ring helpers used to do
+ * both for every candidate, every turn. The tables are built lazily on first use, so the cost of creating the arrays
+ * is paid once per robot and every lookup after that is just an array read.
+ */
+public strictfp class Directions {
+
+    public static final int   COUNT        = 72;
+    public static final float STEP_DEGREES = 360.0f / COUNT;
+
+    private static final float STEP_RADIANS = (float) (Math.PI * 2 / COUNT);
+
+    private static Direction[] directions;
+    private static float[] cosines;
+    private static float[] sines;
+
+    // Rings are usually asked for with the same size and offset every turn, so remember the last few.
+    private static final int RING_CACHE_SIZE = 4;
+    private static final int[] ringSizes = new int[RING_CACHE_SIZE];
+    private static final float[] ringOffsets = new float[RING_CACHE_SIZE];
+    private static final float[][] ringCosines = new float[RING_CACHE_SIZE][];
+    private static final float[][] ringSines = new float[RING_CACHE_SIZE][];
+    private static int nextRingSlot = 0;
+
+    private static void init() {
+        directions = new Direction[COUNT];
+        cosines = new float[COUNT];
+        sines = new float[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            float radians = i * STEP_RADIANS;
+            directions[i] = new Direction(radians);
+            cosines[i] = (float) Math.cos(radians);
+            sines[i] = (float) Math.sin(radians);
+        }
+    }
+
+    /**
+     * @param index an index into the table, wrapped around if it is negative or `COUNT` or more
+     * @return the Direction `index * STEP_DEGREES` degrees anticlockwise from east
+     */
+    public static Direction get(int index) {
+        if (directions == null) {
+            init();
+        }
+        return directions[wrap(index)];
+    }
+
+    /**
+     * @param index an index into the table, wrapped around if needed
+     * @return the cosine of the Direction at `index`
+     */
+    public static float cos(int index) {
+        if (directions == null) {
+            init();
+        }
+        return cosines[wrap(index)];
+    }
+
+    /**
+     * @param index an index into the table, wrapped around if needed
+     * @return the sine of the Direction at `index`
+     */
+    public static float sin(int index) {
+        if (directions == null) {
+            init();
+        }
+        return sines[wrap(index)];
+    }
+
+    /**
+     * @param direction any Direction
+     * @return the index of the nearest Direction in the table
+     */
+    public static int indexOf(Direction direction) {
+        return wrap(Math.round(direction.radians / STEP_RADIANS));
+    }
+
+    /**
+     * Converts an angle in degrees to a whole number of table steps, for rotating an index.
+     *
+     * @param degrees the angle
+     * @return the nearest number of steps, at least one
+     */
+    public static int steps(float degrees) {
+        int steps = Math.round(degrees / STEP_DEGREES);
+        return steps < 1 ? 1 : steps;
+    }
+
+    /**
+     * @param rng the generator to draw from
+     * @return a random Direction from the table
+     */
+    public static Direction random(Rng rng) {
+        return get(rng.nextInt(COUNT));
+    }
+
+    /**
+     * Moves a location along the Direction at `index`, without creating a Direction or calling any trig functions.
+     *
+     * @param location the starting MapLocation
+     * @param index    an index into the table
+     * @param distance how far to move
+     * @return the new MapLocation
+     */
+    public static MapLocation add(MapLocation location, int index, float distance) {
+        return new MapLocation(location.x + cos(index) * distance, location.y + sin(index) * distance);
+    }
+
+    /**
+     * Finds the unit vectors for a ring of `numLocations` evenly spaced points, starting `offset` radians from east.
+     * These are exact rather than quantised, as gardens need their trees packed tightly, but are cached so asking for
+     * the same ring again is free.
+     *
+     * @param numLocations the number of points around the ring
+     * @param offset       the angle of the first point, in radians
+     * @return a slot to pass to `ringCos` and `ringSin`
+     */
+    public static int ring(int numLocations, float offset) {
+        for (int slot = 0; slot < RING_CACHE_SIZE; slot++) {
+            if (ringSizes[slot] == numLocations && ringOffsets[slot] == offset && ringCosines[slot] != null) {
+                return slot;
+            }
+        }
+
+        int slot = nextRingSlot;
+        nextRingSlot = (nextRingSlot + 1) % RING_CACHE_SIZE;
+
+        float[] ringCos = new float[numLocations];
+        float[] ringSin = new float[numLocations];
+        double step = (Math.PI * 2) / numLocations;
+        for (int i = 0; i < numLocations; i++) {
+            double angle = offset + step * i;
+            ringCos[i] = (float) Math.cos(angle);
+            ringSin[i] = (float) Math.sin(angle);
+        }
+
+        ringSizes[slot] = numLocations;
+        ringOffsets[slot] = offset;
+        ringCosines[slot] = ringCos;
+        ringSines[slot] = ringSin;
+        return slot;
+    }
+
+    /**
+     * @param slot a slot returned by `ring`
+     * @return the cosines of each point around the ring
+     */
+    public static float[] ringCos(int slot) {
+        return ringCosines[slot];
+    }
+
+    /**
+     * @param slot a slot returned by `ring`
+     * @return the sines of each point around the ring
+     */
+    public static float[] ringSin(int slot) {
+        return ringSines[slot];
+    }
+
+    private static int wrap(int index) {
+        index %= COUNT;
+        return index < 0 ? index + COUNT : index;
+    }
+}
@@ -0,0 +1,189 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * Keeps a running estimate of the team's bullet income and spending, shared through the broadcast array so every
+ * archon works from the same numbers.
+ * <p>
+ * Anything which spends bullets reports it with `recordSpend`, which adds to a running total for the round. Once per
+ * round, the first archon to call `update` works out what came in since the last update, from the change in the
+ * bank plus whatever was spent, and folds that and the spending into exponentially weighted moving averages. That's
+ * a handful of broadcasts a turn however long the game runs, unlike keeping a history of the bank.
+ * <p>
+ * From the averages, the updating archon decides whether gardeners should be planting gardens, or whether bullets are
+ * piling up faster than they're being spent, in which case gardeners should wander about building soldiers instead.
+ * The decision is broadcast on `GARDENERS_BUILD_GARDENS_CHANNEL`.
+ */
+public strictfp class Economy {
+
+    // How much each round's figures count towards the averages. Roughly, the averages cover the last 1 / ALPHA rounds.
+    private static final float ALPHA = 0.1f;
+
+    // Where the bank is expected to be in this many rounds, at the current net income, decides which mode we're in.
+    private static final int   HORIZON_ROUNDS = 20;
+    private static final float SURPLUS_BANK   = 500.0f; // Switch to building soldiers when heading above this...
+    private static final float DEFICIT_BANK   = 200.0f; // ...and back to gardens when heading below this.
+
+    // How much of the income should go on new gardeners, which decides how often they're hired.
+    private static final float HIRING_SHARE        = 0.3f;
+    private static final int   MIN_HIRING_INTERVAL = 20;
+    private static final int   MAX_HIRING_INTERVAL = 100;
+
+    private static final int ROUND_CHANNEL     = Comms.ECONOMY_CHANNEL;
+    private static final int BANK_CHANNEL      = Comms.ECONOMY_CHANNEL + 1;
+    private static final int SPENT_CHANNEL     = Comms.ECONOMY_CHANNEL + 2;
+    private static final int INCOME_CHANNEL    = Comms.ECONOMY_CHANNEL + 3;
+    private static final int SPENDING_CHANNEL  = Comms.ECONOMY_CHANNEL + 4;
+    private static final int LAST_HIRE_CHANNEL = Comms.ECONOMY_CHANNEL + 5;
+
+    private final RobotController rc;
+
+    private float income;
+    private float spending;
+    private boolean buildGardens = true;
+
+    /**
+     * @param rc the RobotController for this robot
+     */
+    public Economy(RobotController rc) {
+        this.rc = rc;
+    }
+
+    /**
+     * Reports bullets spent, so they're counted as spending rather than as a drop in income.
+     *
+     * @param rc     the RobotController for the robot spending
+     * @param amount how many bullets were spent
+     * @throws GameActionException
+     */
+    public static void recordSpend(RobotController rc, float amount) throws GameActionException {
+        rc.broadcastFloat(SPENT_CHANNEL, rc.readBroadcastFloat(SPENT_CHANNEL) + amount);
+    }
+
+    /**
+     * Reads whether gardeners should be planting gardens, for robots which don't keep an Economy of their own. Until
+     * an archon has made the call, they should.
+     *
+     * @param rc the RobotController for the robot asking
+     * @return true if gardeners should be planting gardens, or false if they should be building soldiers
+     * @throws GameActionException
+     */
+    public static boolean readBuildGardens(RobotController rc) throws GameActionException {
+        return rc.readBroadcastInt(ROUND_CHANNEL) == 0 || rc.readBroadcastBoolean(Comms.GARDENERS_BUILD_GARDENS_CHANNEL);
+    }
+
+    /**
+     * Folds the rounds since the last update into the averages, if nobody has yet this round, and picks up the latest
+     * averages and mode either way. Archons call this every turn.
+     *
+     * @throws GameActionException
+     */
+    public void update() throws GameActionException {
+        // Rounds are stored one higher, so an unwritten channel means there hasn't been an update yet.
+        int round = rc.getRoundNum();
+        int lastRound = rc.readBroadcastInt(ROUND_CHANNEL) - 1;
+
+        if (lastRound == round) {
+            income = rc.readBroadcastFloat(INCOME_CHANNEL);
+            spending = rc.readBroadcastFloat(SPENDING_CHANNEL);
+            buildGardens = rc.readBroadcastBoolean(Comms.GARDENERS_BUILD_GARDENS_CHANNEL);
+            return;
+        }
+
+        float bank = rc.getTeamBullets();
+        if (lastRound < 0) {
+            // Nothing to compare against yet, so start from the archons' own income.
+            income = GameConstants.ARCHON_BULLET_INCOME * rc.getInitialArchonLocations(rc.getTeam()).length;
+            spending = 0;
+            buildGardens = true;
+        }
+        else {
+            int rounds = round - lastRound;
+            float spent = rc.readBroadcastFloat(SPENT_CHANNEL);
+            float earned = bank - rc.readBroadcastFloat(BANK_CHANNEL) + spent;
+            income = rc.readBroadcastFloat(INCOME_CHANNEL);
+            spending = rc.readBroadcastFloat(SPENDING_CHANNEL);
+            income += ALPHA * (earned / rounds - income);
+            spending += ALPHA * (spent / rounds - spending);
+
+            // Only switch when clearly past a threshold, so the gardeners don't flip back and forth.
+            float projectedBank = bank + getNetIncome() * HORIZON_ROUNDS;
+            buildGardens = rc.readBroadcastBoolean(Comms.GARDENERS_BUILD_GARDENS_CHANNEL);
+            if (buildGardens && projectedBank > SURPLUS_BANK) {
+                buildGardens = false;
+            }
+            else if (!buildGardens && projectedBank < DEFICIT_BANK) {
+                buildGardens = true;
+            }
+        }
+
+        rc.broadcastInt(ROUND_CHANNEL, round + 1);
+        rc.broadcastFloat(BANK_CHANNEL, bank);
+        rc.broadcastFloat(SPENT_CHANNEL, 0);
+        rc.broadcastFloat(INCOME_CHANNEL, income);
+        rc.broadcastFloat(SPENDING_CHANNEL, spending);
+        rc.broadcastBoolean(Comms.GARDENERS_BUILD_GARDENS_CHANNEL, buildGardens);
+    }
+
+    /**
+     * @return the average bullets coming in per round, as of the last `update`
+     */
+    public float getIncome() {
+        return income;
+    }
+
+    /**
+     * @return the average bullets spent per round, as of the last `update`
+     */
+    public float getSpending() {
+        return spending;
+    }
+
+    /**
+     * @return income less spending, as of the last `update`
+     */
+    public float getNetIncome() {
+        return income - spending;
+    }
+
+    /**
+     * @return true if gardeners should be planting gardens, or false if they should be building soldiers
+     */
+    public boolean shouldBuildGardens() {
+        return buildGardens;
+    }
+
+    /**
+     * Whether it's time for another gardener, spacing hires out so a fixed share of the income goes on them. The
+     * first gardener is hired straight away, and when we're in surplus they're hired as fast as allowed, as more
+     * gardeners means more soldiers being built.
+     *
+     * @return true if a gardener should be hired this turn, if one can be
+     * @throws GameActionException
+     */
+    public boolean isHiringDue() throws GameActionException {
+        // Also stored one higher, so an unwritten channel means nobody has been hired yet.
+        int lastHire = rc.readBroadcastInt(LAST_HIRE_CHANNEL) - 1;
+        if (lastHire < 0) {
+            return true;
+        }
+
+        int interval = MIN_HIRING_INTERVAL;
+        if (buildGardens) {
+            float hiringIncome = Math.max(income * HIRING_SHARE, 0.01f);
+            interval = (int) Math.min(MAX_HIRING_INTERVAL, Math.max(MIN_HIRING_INTERVAL, RobotType.GARDENER.bulletCost / hiringIncome));
+        }
+        return rc.getRoundNum() - lastHire >= interval;
+    }
+
+    /**
+     * Records that a gardener has been hired, and what it cost.
+     *
+     * @throws GameActionException
+     */
+    public void recordHire() throws GameActionException {
+        rc.broadcastInt(LAST_HIRE_CHANNEL, rc.getRoundNum() + 1);
+        recordSpend(rc, RobotType.GARDENER.bulletCost);
+    }
+}
@@ -0,0 +1,181 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * Picks the safest place to step to this turn, given the bullets threatening the robot.
+ * <p>
+ * Each bullet is projected forward `ROUNDS_AHEAD` rounds, and every candidate position (staying put, plus a ring of
+ * full and half strides) is scored by the damage of the bullets whose path passes near it. A bullet arriving this
+ * round only counts if it would hit. One arriving later counts if we couldn't get out of its way in the strides we have
+ * left before it arrives, scaled by how close to its path we'd be and weighted down the further off it is, so the
+ * planner prefers to start stepping out of the way of bullets it can't fully dodge this turn.
+ * <p>
+ * All the working arrays are allocated once up front, so planning doesn't allocate anything turn to turn, and the
+ * planner stops looking at further bullets once the bytecodes left drop below `bytecodeFloor`. Bullets are sensed
+ * closest first, so the ones which matter most are always considered. Which bullets are worth considering at all is
+ * decided by `threatens`, which `TurnContext.getThreateningBullets` filters the sensed bullets with.
+ */
+public strictfp class EvasionPlanner {
+
+    public static final int STAY = 0;
+
+    public static final int ROUNDS_AHEAD     = 3;
+    private static final int RING_SIZE       = 8;
+    private static final int NUM_CANDIDATES  = 1 + RING_SIZE * 2;
+    private static final float[] ROUND_WEIGHTS = { 1.0f, 0.5f, 0.25f };
+
+    private final RobotController rc;
+    private final float bodyRadius;
+    private final float strideRadius;
+    private final int bytecodeFloor;
+    private final float[] escapeRadiiSquared = new float[ROUNDS_AHEAD];
+
+    private final int[] candidateDirections = new int[NUM_CANDIDATES];
+    private final float[] candidateDistances = new float[NUM_CANDIDATES];
+    private final float[] candidateX = new float[NUM_CANDIDATES];
+    private final float[] candidateY = new float[NUM_CANDIDATES];
+    private final float[] candidateDamage = new float[NUM_CANDIDATES];
+
+    /**
+     * @param rc            the RobotController for this robot
+     * @param bytecodeFloor stop simulating bullets once fewer than this many bytecodes are left
+     */
+    public EvasionPlanner(RobotController rc, int bytecodeFloor) {
+        this.rc = rc;
+        this.bodyRadius = rc.getType().bodyRadius;
+        this.strideRadius = rc.getType().strideRadius;
+        this.bytecodeFloor = bytecodeFloor;
+
+        // How far from a bullet's path we need to be to be safe, given the strides we'll get before it arrives.
+        for (int round = 0; round < ROUNDS_AHEAD; round++) {
+            float escapeRadius = bodyRadius + strideRadius * round;
+            escapeRadiiSquared[round] = escapeRadius * escapeRadius;
+        }
+
+        // Candidate 0 is staying put, then a ring of full strides, then a ring of half strides.
+        int step = Directions.COUNT / RING_SIZE;
+        for (int i = 0; i < RING_SIZE; i++) {
+            candidateDirections[1 + i] = i * step;
+            candidateDistances[1 + i] = strideRadius;
+            candidateDirections[1 + RING_SIZE + i] = i * step;
+            candidateDistances[1 + RING_SIZE + i] = strideRadius / 2;
+        }
+    }
+
+    /**
+     * Checks whether a bullet's path over the next `ROUNDS_AHEAD` rounds comes close enough to a robot that it could
+     * be hit by it wherever it steps in that time. Most bullets in sight don't, and can be ignored.
+     *
+     * @param bullet   the bullet in question
+     * @param location where the robot is
+     * @param type     the type of robot, for its size and stride
+     * @return true if the bullet needs dodging
+     */
+    public static boolean threatens(BulletInfo bullet, MapLocation location, RobotType type) {
+        float reach = type.bodyRadius + type.strideRadius * ROUNDS_AHEAD;
+        float length = bullet.speed * ROUNDS_AHEAD;
+        return distanceSquaredToPath(location.x, location.y, bullet.location.x, bullet.location.y,
+                bullet.dir.getDeltaX(1), bullet.dir.getDeltaY(1), length) <= reach * reach;
+    }
+
+    /**
+     * Scores every candidate against the given bullets and moves to the safest one we can move to, if it is safer than
+     * staying put.
+     *
+     * @param myLocation where the robot is now
+     * @param bullets    the bullets to consider, closest first, usually `TurnContext.getThreateningBullets`
+     * @return true if a move was performed
+     * @throws GameActionException
+     */
+    public boolean evade(MapLocation myLocation, BulletInfo[] bullets) throws GameActionException {
+        if (bullets.length == 0 || rc.hasMoved()) {
+            return false;
+        }
+
+        for (int c = 0; c < NUM_CANDIDATES; c++) {
+            candidateX[c] = myLocation.x + Directions.cos(candidateDirections[c]) * candidateDistances[c];
+            candidateY[c] = myLocation.y + Directions.sin(candidateDirections[c]) * candidateDistances[c];
+            candidateDamage[c] = 0;
+        }
+
+        boolean threatened = false;
+        for (BulletInfo bullet : bullets) {
+            if (BytecodeCounter.getBytecodesLeft() < bytecodeFloor) {
+                break;
+            }
+
+            float startX = bullet.location.x;
+            float startY = bullet.location.y;
+            float dirX = bullet.dir.getDeltaX(1);
+            float dirY = bullet.dir.getDeltaY(1);
+            float length = bullet.speed * ROUNDS_AHEAD;
+            threatened = true;
+
+            for (int c = 0; c < NUM_CANDIDATES; c++) {
+                float toX = candidateX[c] - startX;
+                float toY = candidateY[c] - startY;
+                float along = toX * dirX + toY * dirY;
+                if (along < 0 || along > length + bodyRadius) {
+                    continue;
+                }
+                float acrossX = toX - dirX * along;
+                float acrossY = toY - dirY * along;
+                float acrossSquared = acrossX * acrossX + acrossY * acrossY;
+                int round = (int) (along / bullet.speed);
+                if (round >= ROUNDS_AHEAD) {
+                    round = ROUNDS_AHEAD - 1;
+                }
+                if (acrossSquared <= escapeRadiiSquared[round]) {
+                    candidateDamage[c] += round == 0
+                            ? bullet.damage
+                            : bullet.damage * ROUND_WEIGHTS[round] * (1 - acrossSquared / escapeRadiiSquared[round]);
+                }
+            }
+        }
+
+        if (!threatened) {
+            return false;
+        }
+
+        // Try the safest candidates in turn until we find one we can actually move to. Bounded by the number of
+        // candidates, as each one that fails is ruled out.
+        for (int attempt = 0; attempt < NUM_CANDIDATES; attempt++) {
+            int best = STAY;
+            for (int c = 1; c < NUM_CANDIDATES; c++) {
+                if (candidateDamage[c] < candidateDamage[best]) {
+                    best = c;
+                }
+            }
+            if (best == STAY) {
+                return false;
+            }
+
+            Direction direction = Directions.get(candidateDirections[best]);
+            if (rc.canMove(direction, candidateDistances[best])) {
+                rc.move(direction, candidateDistances[best]);
+                return true;
+            }
+            candidateDamage[best] = Float.MAX_VALUE;
+        }
+        return false;
+    }
+
+    /**
+     * The squared distance from a point to the nearest point on a bullet's path.
+     */
+    private static float distanceSquaredToPath(float x, float y, float startX, float startY, float dirX, float dirY, float length) {
+        float toX = x - startX;
+        float toY = y - startY;
+        float along = toX * dirX + toY * dirY;
+        if (along < 0) {
+            along = 0;
+        }
+        else if (along > length) {
+            along = length;
+        }
+        float acrossX = toX - dirX * along;
+        float acrossY = toY - dirY * along;
+        return acrossX * acrossX + acrossY * acrossY;
+    }
+}
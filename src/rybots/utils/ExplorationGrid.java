@@ -0,0 +1,162 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * A coarse map of which parts of the map the team has seen, see `BitGrid`, so scouts can sweep the whole map between
+ * them rather than wandering over the same ground.
+ * <p>
+ * A cell's bit is set once a robot has seen its centre, which includes seeing that its centre is off the map.
+ * <p>
+ * Scouts head for the nearest cell nobody has visited. Once every cell inside the known map bounds has been visited,
+ * the grid is cleared and the sweep starts again, as what was seen at the start of the game will be out of date.
+ */
+public strictfp class ExplorationGrid extends BitGrid {
+
+    // Big enough that the grid fits in a handful of channels, small enough that a scout sees a cell's centre from
+    // anywhere in the cells around it.
+    public static final float CELL_SIZE = 10.0f;
+
+    /**
+     * @param rc the RobotController to broadcast with
+     */
+    public ExplorationGrid(RobotController rc) {
+        super(rc, CELL_SIZE, Comms.EXPLORATION_GRID_CHANNEL);
+    }
+
+    /**
+     * Marks every cell whose centre is within sight as visited. Channels are only written when a bit actually changes.
+     *
+     * @param location     where the robot is
+     * @param sensorRadius how far the robot can see
+     * @throws GameActionException
+     */
+    public void markSeen(MapLocation location, float sensorRadius) throws GameActionException {
+        float x = location.x - originX;
+        float y = location.y - originY;
+        int minX = Math.max(0, (int) ((x - sensorRadius) / CELL_SIZE));
+        int maxX = Math.min(gridSize - 1, (int) ((x + sensorRadius) / CELL_SIZE));
+        int minY = Math.max(0, (int) ((y - sensorRadius) / CELL_SIZE));
+        int maxY = Math.min(gridSize - 1, (int) ((y + sensorRadius) / CELL_SIZE));
+        float radiusSquared = sensorRadius * sensorRadius;
+
+        for (int cellY = minY; cellY <= maxY; cellY++) {
+            float dy = (cellY + 0.5f) * CELL_SIZE - y;
+            for (int cellX = minX; cellX <= maxX; cellX++) {
+                float dx = (cellX + 0.5f) * CELL_SIZE - x;
+                if (dx * dx + dy * dy <= radiusSquared) {
+                    setCell(cellY * gridSize + cellX);
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks the cell containing a location as visited, such as one which turns out to be off the map or out of reach.
+     *
+     * @param location the MapLocation to mark
+     * @throws GameActionException
+     */
+    public void markVisited(MapLocation location) throws GameActionException {
+        int cell = cellOf(location);
+        if (cell >= 0) {
+            setCell(cell);
+        }
+    }
+
+    /**
+     * Checks whether the cell containing a location has been visited. Costs one broadcast read.
+     *
+     * @param location the MapLocation to check
+     * @return true if the cell has been visited, or is outside the grid entirely
+     * @throws GameActionException
+     */
+    public boolean isVisited(MapLocation location) throws GameActionException {
+        int cell = cellOf(location);
+        return cell < 0 || isSet(cell);
+    }
+
+    /**
+     * Finds the centre of the nearest unvisited cell inside the known map bounds, searching outwards a ring of cells at
+     * a time so the cost is bounded by `maxRings`.
+     *
+     * @param from     where to search from
+     * @param bounds   where the edges of the map might be
+     * @param maxRings how many rings of cells around `from` to search
+     * @return the centre of the nearest unvisited cell, or null if there are none within `maxRings`
+     * @throws GameActionException
+     */
+    public MapLocation nearestUnvisited(MapLocation from, MapBounds bounds, int maxRings) throws GameActionException {
+        int fromX = (int) ((from.x - originX) / CELL_SIZE);
+        int fromY = (int) ((from.y - originY) / CELL_SIZE);
+
+        for (int ring = 0; ring <= maxRings; ring++) {
+            MapLocation best = null;
+            float bestDistance = Float.MAX_VALUE;
+            for (int cellY = fromY - ring; cellY <= fromY + ring; cellY++) {
+                // Only the edge of the square is in this ring, so step straight across the rows in between.
+                int step = (cellY == fromY - ring || cellY == fromY + ring) ? 1 : Math.max(1, 2 * ring);
+                for (int cellX = fromX - ring; cellX <= fromX + ring; cellX += step) {
+                    MapLocation centre = unvisitedCentre(cellX, cellY, bounds);
+                    if (centre != null) {
+                        float distance = from.distanceTo(centre);
+                        if (distance < bestDistance) {
+                            best = centre;
+                            bestDistance = distance;
+                        }
+                    }
+                }
+            }
+            // Anything in a further ring is at least one cell further away, near enough.
+            if (best != null) {
+                return best;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the centre of any unvisited cell inside the known map bounds, skipping whole channels which are fully
+     * visited, so it's cheap to check whether the sweep is finished.
+     *
+     * @param bounds where the edges of the map might be
+     * @return the centre of an unvisited cell, or null if every cell has been visited
+     * @throws GameActionException
+     */
+    public MapLocation anyUnvisited(MapBounds bounds) throws GameActionException {
+        for (int channel = 0; channel < channels; channel++) {
+            int bits = rc.readBroadcastInt(firstChannel + channel);
+            if (bits == -1) {
+                continue;
+            }
+            for (int bit = 0; bit < 32; bit++) {
+                int cell = (channel << 5) + bit;
+                if ((bits & (1 << bit)) == 0 && cell < gridSize * gridSize
+                        && inBounds(cell % gridSize, cell / gridSize, bounds)) {
+                    return centreOf(cell % gridSize, cell / gridSize);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the centre of the cell if it's inside the grid and the known bounds and hasn't been visited, or null
+     */
+    private MapLocation unvisitedCentre(int cellX, int cellY, MapBounds bounds) throws GameActionException {
+        if (!inGrid(cellX, cellY) || !inBounds(cellX, cellY, bounds) || isSet(cellY * gridSize + cellX)) {
+            return null;
+        }
+        return centreOf(cellX, cellY);
+    }
+
+    /**
+     * Checks a cell's centre against the bounds without allocating a MapLocation, as this is called for every cell
+     * searched.
+     */
+    private boolean inBounds(int cellX, int cellY, MapBounds bounds) {
+        float x = originX + (cellX + 0.5f) * CELL_SIZE;
+        float y = originY + (cellY + 0.5f) * CELL_SIZE;
+        return x >= bounds.getMinX() && x <= bounds.getMaxX() && y >= bounds.getMinY() && y <= bounds.getMaxY();
+    }
+}
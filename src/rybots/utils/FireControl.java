@@ -0,0 +1,272 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * Decides whether, where and how to shoot, so bullets are only spent on shots likely to land.
+ * <p>
+ * Enemy positions are remembered across turns by robot ID, giving an estimate of each enemy's velocity. Shots are aimed
+ * at where the target will be when the bullet arrives, rather than where it is now. Any shot whose path would hit one of
+ * our own robots is rejected outright, and bullets which would hit a tree before the target are counted as wasted.
+ * <p>
+ * Each shot type is scored by the damage it's expected to do, assuming the target could be anywhere it can reach in the
+ * time the bullet takes to get there, less what the bullets cost. A triad or pentad is only chosen when its extra
+ * bullets are likely enough to hit to pay for themselves, and nothing is fired at all if even a single shot isn't.
+ */
+public strictfp class FireControl {
+
+    // Damage each bullet spent has to be expected to do to be worth firing.
+    private static final float BULLET_VALUE = 0.5f;
+
+    // Only the closest few enemies are considered as targets, to keep the cost down in a big fight.
+    private static final int MAX_TARGETS = 3;
+
+    // Enemies are tracked in a small table indexed by ID, so a collision just loses the older track.
+    private static final int TRACK_SLOTS = 64;
+    private static final int TRACK_MASK  = TRACK_SLOTS - 1;
+
+    private static final int SINGLE = 1;
+    private static final int TRIAD  = 3;
+    private static final int PENTAD = 5;
+
+    // Scored for any shot which would hit one of our own robots, so it's never taken.
+    private static final float FRIENDLY_FIRE = -1;
+
+    private final RobotController rc;
+    private final float bulletSpeed;
+    private final float bulletDamage;
+
+    private final int[] trackIds = new int[TRACK_SLOTS];
+    private final int[] trackRounds = new int[TRACK_SLOTS];
+    private final float[] trackX = new float[TRACK_SLOTS];
+    private final float[] trackY = new float[TRACK_SLOTS];
+    private final float[] trackVelocityX = new float[TRACK_SLOTS];
+    private final float[] trackVelocityY = new float[TRACK_SLOTS];
+
+    /**
+     * @param rc the RobotController for this robot
+     */
+    public FireControl(RobotController rc) {
+        this.rc = rc;
+        this.bulletSpeed = rc.getType().bulletSpeed;
+        this.bulletDamage = rc.getType().attackPower;
+    }
+
+    /**
+     * Updates the velocity estimates for every enemy we can see. Should be called once per turn, before `engage`.
+     *
+     * @param enemies the enemies we can see
+     * @param round   the current round
+     */
+    public void track(RobotInfo[] enemies, int round) {
+        for (RobotInfo enemy : enemies) {
+            int slot = enemy.ID & TRACK_MASK;
+            float x = enemy.location.x;
+            float y = enemy.location.y;
+            int elapsed = round - trackRounds[slot];
+
+            if (trackIds[slot] == enemy.ID && elapsed > 0 && elapsed <= 2) {
+                trackVelocityX[slot] = (x - trackX[slot]) / elapsed;
+                trackVelocityY[slot] = (y - trackY[slot]) / elapsed;
+            }
+            else if (trackIds[slot] != enemy.ID || elapsed > 2) {
+                // A new enemy, or one we lost sight of for a while, so we have no idea how it's moving.
+                trackIds[slot] = enemy.ID;
+                trackVelocityX[slot] = 0;
+                trackVelocityY[slot] = 0;
+            }
+            trackX[slot] = x;
+            trackY[slot] = y;
+            trackRounds[slot] = round;
+        }
+    }
+
+    /**
+     * Picks the best shot at any of the closest enemies and fires it, if any shot is worth its bullets.
+     *
+     * @param myLocation where the robot is now
+     * @param enemies    the enemies we can see, closest first
+     * @param allies     our robots we can see, closest first
+     * @param trees      the trees we can see, closest first
+     * @return true if a shot was fired
+     * @throws GameActionException
+     */
+    public boolean engage(MapLocation myLocation, RobotInfo[] enemies, RobotInfo[] allies, TreeInfo[] trees) throws GameActionException {
+        if (enemies.length == 0 || rc.hasAttacked() || !rc.canFireSingleShot()) {
+            return false;
+        }
+
+        boolean canTriad = rc.canFireTriadShot();
+        boolean canPentad = rc.canFirePentadShot();
+
+        Direction bestDirection = null;
+        int bestBullets = 0;
+        float bestScore = 0;
+
+        int targets = Math.min(enemies.length, MAX_TARGETS);
+        for (int i = 0; i < targets; i++) {
+            RobotInfo target = enemies[i];
+            MapLocation aim = lead(myLocation, target);
+            Direction direction = myLocation.directionTo(aim);
+            float distance = myLocation.distanceTo(aim);
+
+            // How far either side of the predicted spot the target could be by the time the bullet gets there.
+            float spread = target.type.strideRadius * (distance / bulletSpeed);
+
+            float single = scoreShot(myLocation, direction, distance, target.type.bodyRadius, spread, SINGLE, 0, allies, trees);
+            if (single - GameConstants.SINGLE_SHOT_COST * BULLET_VALUE > bestScore) {
+                bestScore = single - GameConstants.SINGLE_SHOT_COST * BULLET_VALUE;
+                bestDirection = direction;
+                bestBullets = SINGLE;
+            }
+            if (single == FRIENDLY_FIRE) {
+                // The middle bullet of every shot takes the same path, so if that hits an ally so do the others. A
+                // tree in the way is different, as the spread shots' outer bullets may still get round it.
+                continue;
+            }
+
+            if (canTriad) {
+                float triad = scoreShot(myLocation, direction, distance, target.type.bodyRadius, spread, TRIAD,
+                        GameConstants.TRIAD_SPREAD_DEGREES, allies, trees);
+                if (triad - GameConstants.TRIAD_SHOT_COST * BULLET_VALUE > bestScore) {
+                    bestScore = triad - GameConstants.TRIAD_SHOT_COST * BULLET_VALUE;
+                    bestDirection = direction;
+                    bestBullets = TRIAD;
+                }
+            }
+            if (canPentad) {
+                float pentad = scoreShot(myLocation, direction, distance, target.type.bodyRadius, spread, PENTAD,
+                        GameConstants.PENTAD_SPREAD_DEGREES, allies, trees);
+                if (pentad - GameConstants.PENTAD_SHOT_COST * BULLET_VALUE > bestScore) {
+                    bestScore = pentad - GameConstants.PENTAD_SHOT_COST * BULLET_VALUE;
+                    bestDirection = direction;
+                    bestBullets = PENTAD;
+                }
+            }
+        }
+
+        switch (bestBullets) {
+            case SINGLE:
+                rc.fireSingleShot(bestDirection);
+                Economy.recordSpend(rc, GameConstants.SINGLE_SHOT_COST);
+                return true;
+            case TRIAD:
+                rc.fireTriadShot(bestDirection);
+                Economy.recordSpend(rc, GameConstants.TRIAD_SHOT_COST);
+                return true;
+            case PENTAD:
+                rc.firePentadShot(bestDirection);
+                Economy.recordSpend(rc, GameConstants.PENTAD_SHOT_COST);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Works out where to aim so a bullet fired now meets the target, assuming it keeps moving as it has been.
+     */
+    private MapLocation lead(MapLocation myLocation, RobotInfo target) {
+        int slot = target.ID & TRACK_MASK;
+        if (trackIds[slot] != target.ID) {
+            return target.location;
+        }
+        float velocityX = trackVelocityX[slot];
+        float velocityY = trackVelocityY[slot];
+        if (velocityX == 0 && velocityY == 0) {
+            return target.location;
+        }
+
+        // Two passes are plenty: the second corrects for the target having moved while the first bullet was in flight.
+        float time = myLocation.distanceTo(target.location) / bulletSpeed;
+        MapLocation aim = new MapLocation(target.location.x + velocityX * time, target.location.y + velocityY * time);
+        time = myLocation.distanceTo(aim) / bulletSpeed;
+        return new MapLocation(target.location.x + velocityX * time, target.location.y + velocityY * time);
+    }
+
+    /**
+     * The damage a shot is expected to do, treating the target as equally likely to be anywhere within `spread` either
+     * side of where we're aiming.
+     *
+     * @return the expected damage, or `FRIENDLY_FIRE` if the shot would hit one of our own robots
+     */
+    private float scoreShot(MapLocation myLocation, Direction direction, float distance, float targetRadius, float spread,
+                            int bullets, float spreadDegrees, RobotInfo[] allies, TreeInfo[] trees) {
+        float expected = 0;
+        int half = bullets / 2;
+        for (int k = -half; k <= half; k++) {
+            float angle = k * spreadDegrees;
+            Direction bulletDirection = k == 0 ? direction : direction.rotateLeftDegrees(angle);
+            float dirX = bulletDirection.getDeltaX(1);
+            float dirY = bulletDirection.getDeltaY(1);
+
+            if (alliesInPath(myLocation, dirX, dirY, distance + targetRadius, allies)) {
+                return FRIENDLY_FIRE;
+            }
+            if (treesInPath(myLocation, dirX, dirY, distance - targetRadius, trees)) {
+                continue;
+            }
+
+            // The chance the target is somewhere this bullet hits: where [offset - radius, offset + radius] overlaps
+            // with [-spread, spread].
+            float offset = distance * (float) Math.sin(Math.toRadians(angle));
+            if (spread < targetRadius) {
+                if (Math.abs(offset) <= targetRadius) {
+                    expected += bulletDamage;
+                }
+                continue;
+            }
+            float overlap = Math.min(offset + targetRadius, spread) - Math.max(offset - targetRadius, -spread);
+            if (overlap > 0) {
+                expected += bulletDamage * overlap / (2 * spread);
+            }
+        }
+        return expected;
+    }
+
+    /**
+     * Checks whether a bullet fired along (dirX, dirY) would hit any of our robots within `range`. The robots are sorted
+     * by the distance to their centres, so we can stop once even the largest robot would be out of range.
+     */
+    private static boolean alliesInPath(MapLocation from, float dirX, float dirY, float range, RobotInfo[] allies) {
+        for (RobotInfo ally : allies) {
+            float distance = from.distanceTo(ally.location);
+            if (distance - GameConstants.MAX_ROBOT_RADIUS > range) {
+                break;
+            }
+            if (distance - ally.type.bodyRadius <= range && crossesPath(from, dirX, dirY, ally.location, ally.type.bodyRadius)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a bullet fired along (dirX, dirY) would hit any tree within `range`. As with robots, we stop once
+     * even the largest tree would be out of range.
+     */
+    private static boolean treesInPath(MapLocation from, float dirX, float dirY, float range, TreeInfo[] trees) {
+        for (TreeInfo tree : trees) {
+            float distance = from.distanceTo(tree.location);
+            if (distance - GameConstants.NEUTRAL_TREE_MAX_RADIUS > range) {
+                break;
+            }
+            if (distance - tree.radius <= range && crossesPath(from, dirX, dirY, tree.location, tree.radius)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean crossesPath(MapLocation from, float dirX, float dirY, MapLocation center, float radius) {
+        float toX = center.x - from.x;
+        float toY = center.y - from.y;
+        float along = toX * dirX + toY * dirY;
+        if (along < 0) {
+            return false;
+        }
+        float acrossX = toX - dirX * along;
+        float acrossY = toY - dirY * along;
+        return acrossX * acrossX + acrossY * acrossY <= radius * radius;
+    }
+}
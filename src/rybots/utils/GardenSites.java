@@ -0,0 +1,239 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * Hands out places for gardeners to plant their gardens, so they pack in neatly rather than all wandering towards the
+ * same spot.
+ * <p>
+ * Sites sit on a hexagonal lattice shared by the whole team, anchored on our first archon's starting location, with
+ * `RINGS` rings of sites around each archon. The lattice is spaced so that neighbouring gardens leave a gap a robot
+ * can squeeze through. A site inside more than one archon's rings belongs to whichever archon comes first.
+ * <p>
+ * Each site has a channel holding the ID of the gardener which has claimed it, stamped with the round (see
+ * `Comms.stamp`). The gardener refreshes the stamp every turn, so if it dies the claim expires after
+ * `CLAIM_TIMEOUT_ROUNDS` and the site is free again. Sites found to be blocked are claimed on nobody's behalf, so
+ * they're left alone for a while before anyone tries them again.
+ * <p>
+ * Once a gardener has planted its garden, its claim is marked as settled. If a settled claim lapses, the gardener has
+ * died and left its trees to wither, so the site is an orphan. Orphans are noticed sooner, after
+ * `ORPHAN_TIMEOUT_ROUNDS`, and handed out ahead of any empty site, so a new gardener adopts the trees and keeps them
+ * watered.
+ */
+public strictfp class GardenSites {
+
+    public static final int RINGS = 3;
+    public static final int SITES_PER_ARCHON = 3 * RINGS * (RINGS + 1); // 6 sites in the first ring, 12 in the second...
+
+    // Two gardens' worth of trees, plus room for a robot between them.
+    public static final float SPACING = 2 * (GameConstants.BULLET_TREE_RADIUS * 2 + RobotType.GARDENER.bodyRadius)
+            + 2 * RobotType.SOLDIER.bodyRadius + 0.1f;
+    private static final float ROW_HEIGHT = SPACING * (float) Math.sqrt(3) / 2;
+
+    private static final int CLAIM_TIMEOUT_ROUNDS  = 50;
+    private static final int ORPHAN_TIMEOUT_ROUNDS = 5;
+
+    // Stamped alongside the ID once the gardener has settled. IDs never get this high.
+    private static final int SETTLED = 1 << 19;
+
+    // The largest value a stamp can hold, which is no robot's ID.
+    private static final int BLOCKED = (1 << 20) - 1;
+
+    // Added to the distance to empty sites, so any orphan is picked first.
+    private static final float ORPHAN_PREFERENCE = 1000.0f;
+
+    // Lattice offsets of the sites around an archon, in axial coordinates, nearest ring first.
+    private static final int[] OFFSET_Q = new int[SITES_PER_ARCHON];
+    private static final int[] OFFSET_R = new int[SITES_PER_ARCHON];
+
+    static {
+        int i = 0;
+        for (int ring = 1; ring <= RINGS; ring++) {
+            for (int q = -ring; q <= ring; q++) {
+                for (int r = -ring; r <= ring; r++) {
+                    if (hexDistance(q, r) == ring) {
+                        OFFSET_Q[i] = q;
+                        OFFSET_R[i] = r;
+                        i++;
+                    }
+                }
+            }
+        }
+    }
+
+    private final RobotController rc;
+    private final int id;
+    private final MapLocation origin;
+    private final int[] archonQ;
+    private final int[] archonR;
+
+    private int claimed = -1;
+    private MapLocation claimedLocation;
+    private boolean adopting = false;
+    private boolean settled = false;
+
+    /**
+     * @param rc the RobotController for this robot
+     */
+    public GardenSites(RobotController rc) {
+        this.rc = rc;
+        this.id = rc.getID();
+
+        MapLocation[] archons = rc.getInitialArchonLocations(rc.getTeam());
+        this.origin = archons[0];
+        this.archonQ = new int[archons.length];
+        this.archonR = new int[archons.length];
+        for (int i = 0; i < archons.length; i++) {
+            // Snap each archon to its nearest lattice point, near enough.
+            archonR[i] = Math.round((archons[i].y - origin.y) / ROW_HEIGHT);
+            archonQ[i] = Math.round((archons[i].x - origin.x) / SPACING - archonR[i] / 2.0f);
+        }
+    }
+
+    /**
+     * Claims the closest orphaned site, or failing that the closest free site which is inside the known map bounds and
+     * not known to be blocked, giving up any site already claimed.
+     *
+     * @param from      where the distance to each site is measured from
+     * @param round     the current round
+     * @param bounds    where the edges of the map might be
+     * @param obstacles the obstacles the team knows about
+     * @return the site claimed, or null if there are none free
+     * @throws GameActionException
+     */
+    public MapLocation claimNearest(MapLocation from, int round, MapBounds bounds, ObstacleGrid obstacles) throws GameActionException {
+        release();
+
+        float margin = GameConstants.BULLET_TREE_RADIUS * 2 + RobotType.GARDENER.bodyRadius;
+        int best = -1;
+        MapLocation bestLocation = null;
+        float bestDistance = Float.MAX_VALUE;
+        boolean bestIsOrphan = false;
+        for (int archon = 0; archon < archonQ.length; archon++) {
+            for (int i = 0; i < SITES_PER_ARCHON; i++) {
+                int q = archonQ[archon] + OFFSET_Q[i];
+                int r = archonR[archon] + OFFSET_R[i];
+                if (belongsToEarlierArchon(archon, q, r)) {
+                    continue;
+                }
+                int stamped = rc.readBroadcastInt(Comms.GARDEN_SITES_CHANNEL + archon * SITES_PER_ARCHON + i);
+                int value = Comms.valueOf(stamped);
+                int age = round - Comms.roundOf(stamped);
+                boolean orphan = stamped != 0 && value != BLOCKED && (value & SETTLED) != 0 && age > ORPHAN_TIMEOUT_ROUNDS;
+                if (stamped != 0 && !orphan && age <= CLAIM_TIMEOUT_ROUNDS) {
+                    continue;
+                }
+                MapLocation location = locate(q, r);
+                float distance = from.distanceTo(location) - (orphan ? ORPHAN_PREFERENCE : 0);
+                if (distance < bestDistance && bounds.contains(location, margin) && !obstacles.isBlocked(location)) {
+                    best = archon * SITES_PER_ARCHON + i;
+                    bestLocation = location;
+                    bestDistance = distance;
+                    bestIsOrphan = orphan;
+                }
+            }
+        }
+
+        if (best >= 0) {
+            claimed = best;
+            claimedLocation = bestLocation;
+            adopting = bestIsOrphan;
+            refresh(round);
+        }
+        return bestLocation;
+    }
+
+    /**
+     * Keeps our claim on the site from expiring. Call this every turn while holding a site.
+     *
+     * @param round the current round
+     * @throws GameActionException
+     */
+    public void refresh(int round) throws GameActionException {
+        if (claimed >= 0) {
+            rc.broadcastInt(Comms.GARDEN_SITES_CHANNEL + claimed, Comms.stamp(round, settled ? id | SETTLED : id));
+        }
+    }
+
+    /**
+     * Marks our claim as settled, now there's a garden on the site to look after.
+     *
+     * @param round the current round
+     * @throws GameActionException
+     */
+    public void settle(int round) throws GameActionException {
+        settled = true;
+        refresh(round);
+    }
+
+    /**
+     * Gives up the site claimed, warning everyone else off it for a while as it won't fit a garden.
+     *
+     * @param round the current round
+     * @throws GameActionException
+     */
+    public void markBlocked(int round) throws GameActionException {
+        if (claimed >= 0) {
+            rc.broadcastInt(Comms.GARDEN_SITES_CHANNEL + claimed, Comms.stamp(round, BLOCKED));
+            claimed = -1;
+            claimedLocation = null;
+            adopting = false;
+        }
+    }
+
+    /**
+     * Gives up the site claimed, leaving it free for anyone else.
+     *
+     * @throws GameActionException
+     */
+    public void release() throws GameActionException {
+        if (claimed >= 0) {
+            rc.broadcastInt(Comms.GARDEN_SITES_CHANNEL + claimed, 0);
+            claimed = -1;
+            claimedLocation = null;
+            adopting = false;
+        }
+    }
+
+    /**
+     * @return the site this robot has claimed, or null if it hasn't got one
+     */
+    public MapLocation getClaimed() {
+        return claimedLocation;
+    }
+
+    /**
+     * Treats the site claimed as an ordinary site from now on, such as once an orphan's trees have all gone.
+     */
+    public void stopAdopting() {
+        adopting = false;
+        settled = false;
+    }
+
+    /**
+     * @return true if the site claimed is an orphan, whose trees are ours to look after
+     */
+    public boolean isAdopting() {
+        return adopting;
+    }
+
+    private MapLocation locate(int q, int r) {
+        return new MapLocation(origin.x + SPACING * (q + r / 2.0f), origin.y + ROW_HEIGHT * r);
+    }
+
+    private boolean belongsToEarlierArchon(int archon, int q, int r) {
+        for (int earlier = 0; earlier < archon; earlier++) {
+            if (hexDistance(q - archonQ[earlier], r - archonR[earlier]) <= RINGS) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return how many lattice steps from the origin a point is, in axial coordinates
+     */
+    private static int hexDistance(int q, int r) {
+        return (Math.abs(q) + Math.abs(r) + Math.abs(q + r)) / 2;
+    }
+}
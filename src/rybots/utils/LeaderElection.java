@@ -0,0 +1,57 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * Picks one robot out of a group to be the leader, through a single broadcast channel, so work which only needs doing
+ * once per round isn't done, and overwritten, by every one of them.
+ * <p>
+ * The channel holds the leader's ID, stamped with the last round the leader was seen (see `Comms.stamp`). The leader
+ * refreshes the stamp every turn as a heartbeat. Anyone who finds the channel empty, or the stamp more than
+ * `TIMEOUT_ROUNDS` old because the leader has died, takes over by writing their own ID. Robots take their turns one
+ * at a time, so the first to notice claims the channel, and everyone after that sees a fresh stamp and follows.
+ */
+public strictfp class LeaderElection {
+
+    // A leader may miss a round if it runs out of bytecodes, so allow a little slack before replacing it.
+    private static final int TIMEOUT_ROUNDS = 2;
+
+    private final RobotController rc;
+    private final int channel;
+    private final int id;
+    private boolean leader = false;
+
+    /**
+     * @param rc      the RobotController for this robot
+     * @param channel the channel the group's leader is kept on
+     */
+    public LeaderElection(RobotController rc, int channel) {
+        this.rc = rc;
+        this.channel = channel;
+        this.id = rc.getID();
+    }
+
+    /**
+     * Sends the heartbeat if we're the leader, or takes over if the leader has gone quiet. Every robot in the group
+     * should call this once a turn, before anything which depends on `isLeader`.
+     *
+     * @param round the current round
+     * @return true if this robot is the leader this turn
+     * @throws GameActionException
+     */
+    public boolean update(int round) throws GameActionException {
+        int stamped = rc.readBroadcastInt(channel);
+        leader = stamped == 0 || Comms.valueOf(stamped) == id || round - Comms.roundOf(stamped) > TIMEOUT_ROUNDS;
+        if (leader) {
+            rc.broadcastInt(channel, Comms.stamp(round, id));
+        }
+        return leader;
+    }
+
+    /**
+     * @return true if this robot was the leader as of the last `update`
+     */
+    public boolean isLeader() {
+        return leader;
+    }
+}
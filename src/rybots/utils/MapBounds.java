@@ -0,0 +1,199 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * What this robot knows about where the edges of the map are.
+ * <p>
+ * Every archon, ours and theirs, starts on the map, and no map is wider or taller than `MAP_MAX_WIDTH`/`MAP_MAX_HEIGHT`,
+ * so even before anyone explores we know the map lies within a box around the starting archons. The box only ever
+ * shrinks as edges are narrowed down, and `getVersion` changes whenever it does, so callers can tell when anything
+ * they worked out from the old bounds needs redoing.
+ * <p>
+ * Edges are found with `discover`, which probes `onTheMap` at the limit of the robot's sight for each edge nobody has
+ * found yet, and homes in on the edge when the probe lands off the map. Found edges are published on
+ * `MAP_BOUNDS_CHANNEL`, so each is only searched for once, and everyone else picks it up with a single read. Once an
+ * edge is known, checking or clamping against it is plain arithmetic, with no sensing at all.
+ */
+public strictfp class MapBounds {
+
+    // One bit per edge, in the order they're stored after the known edges channel.
+    private static final int MIN_X_EDGE = 0;
+    private static final int MIN_Y_EDGE = 1;
+    private static final int MAX_X_EDGE = 2;
+    private static final int MAX_Y_EDGE = 3;
+    private static final int ALL_EDGES  = 0xF;
+
+    private static final int KNOWN_EDGES_CHANNEL = Comms.MAP_BOUNDS_CHANNEL;
+    private static final int FIRST_EDGE_CHANNEL  = Comms.MAP_BOUNDS_CHANNEL + 1;
+
+    // Which way each edge lies from a robot on the map.
+    private static final float[] EDGE_DX = { -1, 0, 1, 0 };
+    private static final float[] EDGE_DY = { 0, -1, 0, 1 };
+
+    // Probe just inside sensor range, as `onTheMap` throws outside it, and stop homing in once this close to the edge.
+    private static final float PROBE_MARGIN   = 0.01f;
+    private static final float EDGE_PRECISION = 0.01f;
+
+    private final RobotController rc;
+    private final float probeRange;
+    private int knownEdges = 0;
+
+    private float minX;
+    private float minY;
+    private float maxX;
+    private float maxY;
+    private int version = 0;
+
+    /**
+     * @param rc the RobotController for this robot
+     */
+    public MapBounds(RobotController rc) {
+        this.rc = rc;
+        this.probeRange = rc.getType().sensorRadius - PROBE_MARGIN;
+
+        float lowestX = Float.MAX_VALUE, lowestY = Float.MAX_VALUE;
+        float highestX = -Float.MAX_VALUE, highestY = -Float.MAX_VALUE;
+        for (Team team : new Team[] { rc.getTeam(), rc.getTeam().opponent() }) {
+            for (MapLocation archon : rc.getInitialArchonLocations(team)) {
+                lowestX  = Math.min(lowestX, archon.x);
+                lowestY  = Math.min(lowestY, archon.y);
+                highestX = Math.max(highestX, archon.x);
+                highestY = Math.max(highestY, archon.y);
+            }
+        }
+        minX = highestX - GameConstants.MAP_MAX_WIDTH;
+        maxX = lowestX + GameConstants.MAP_MAX_WIDTH;
+        minY = highestY - GameConstants.MAP_MAX_HEIGHT;
+        maxY = lowestY + GameConstants.MAP_MAX_HEIGHT;
+    }
+
+    /**
+     * Picks up any edges found by the rest of the team, then looks for any still unknown from where the robot is.
+     * Every robot should call this once a turn. Costs a single broadcast read once every edge is known.
+     *
+     * @param location where the robot is
+     * @throws GameActionException
+     */
+    public void discover(MapLocation location) throws GameActionException {
+        int shared = rc.readBroadcastInt(KNOWN_EDGES_CHANNEL);
+        if ((shared & ~knownEdges) != 0) {
+            for (int edge = 0; edge < 4; edge++) {
+                if ((shared & ~knownEdges & (1 << edge)) != 0) {
+                    found(edge, rc.readBroadcastFloat(FIRST_EDGE_CHANNEL + edge));
+                }
+            }
+        }
+        if (knownEdges == ALL_EDGES) {
+            return;
+        }
+
+        for (int edge = 0; edge < 4; edge++) {
+            if ((knownEdges & (1 << edge)) != 0 || rc.onTheMap(location.translate(EDGE_DX[edge] * probeRange, EDGE_DY[edge] * probeRange))) {
+                continue;
+            }
+
+            // The edge is in sight, so home in on it. `onMap` is always on the map and `offMap` never is.
+            float onMap = 0;
+            float offMap = probeRange;
+            while (offMap - onMap > EDGE_PRECISION) {
+                float middle = (onMap + offMap) / 2;
+                if (rc.onTheMap(location.translate(EDGE_DX[edge] * middle, EDGE_DY[edge] * middle))) {
+                    onMap = middle;
+                }
+                else {
+                    offMap = middle;
+                }
+            }
+
+            float value = EDGE_DX[edge] != 0 ? location.x + EDGE_DX[edge] * onMap : location.y + EDGE_DY[edge] * onMap;
+            found(edge, value);
+            rc.broadcastFloat(FIRST_EDGE_CHANNEL + edge, value);
+            rc.broadcastInt(KNOWN_EDGES_CHANNEL, rc.readBroadcastInt(KNOWN_EDGES_CHANNEL) | (1 << edge));
+        }
+    }
+
+    /**
+     * @return a number which changes every time the known bounds shrink
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Narrows the known bounds, ignoring any value which wouldn't make the box smaller. The bounds only ever narrow
+     * through `discover`, so every robot's bounds agree with what the team has found.
+     */
+    private void narrow(float newMinX, float newMinY, float newMaxX, float newMaxY) {
+        if (newMinX > minX || newMinY > minY || newMaxX < maxX || newMaxY < maxY) {
+            minX = Math.max(minX, newMinX);
+            minY = Math.max(minY, newMinY);
+            maxX = Math.min(maxX, newMaxX);
+            maxY = Math.min(maxY, newMaxY);
+            version++;
+        }
+    }
+
+    /**
+     * Narrows the bounds to an edge which has been found, which also limits how far away the opposite edge can be.
+     */
+    private void found(int edge, float value) {
+        knownEdges |= 1 << edge;
+        switch (edge) {
+            case MIN_X_EDGE:
+                narrow(value, minY, Math.min(maxX, value + GameConstants.MAP_MAX_WIDTH), maxY);
+                break;
+            case MIN_Y_EDGE:
+                narrow(minX, value, maxX, Math.min(maxY, value + GameConstants.MAP_MAX_HEIGHT));
+                break;
+            case MAX_X_EDGE:
+                narrow(Math.max(minX, value - GameConstants.MAP_MAX_WIDTH), minY, value, maxY);
+                break;
+            case MAX_Y_EDGE:
+                narrow(minX, Math.max(minY, value - GameConstants.MAP_MAX_HEIGHT), maxX, value);
+                break;
+        }
+    }
+
+    /**
+     * @param location the MapLocation to check
+     * @param margin   how far it must be from each edge
+     * @return true if the location is inside the known bounds, at least `margin` away from each edge
+     */
+    public boolean contains(MapLocation location, float margin) {
+        return location.x >= minX + margin && location.x <= maxX - margin
+                && location.y >= minY + margin && location.y <= maxY - margin;
+    }
+
+    /**
+     * Moves a location inside the known bounds, keeping at least `margin` away from each edge.
+     *
+     * @param location the MapLocation to clamp
+     * @param margin   how far to stay away from the edges
+     * @return the original location if it was already inside, otherwise the nearest location which is
+     */
+    public MapLocation clamp(MapLocation location, float margin) {
+        float x = Math.max(minX + margin, Math.min(maxX - margin, location.x));
+        float y = Math.max(minY + margin, Math.min(maxY - margin, location.y));
+        if (x == location.x && y == location.y) {
+            return location;
+        }
+        return new MapLocation(x, y);
+    }
+}
@@ -0,0 +1,189 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * A coarse occupancy grid of the map shared by the whole team, see `BitGrid`.
+ * <p>
+ * A cell's bit is set if the cell is known to be blocked by a tree, and clear if it is free or nobody has seen it
+ * yet. Anything outside the grid can't be on the map, so it reads as blocked.
+ * <p>
+ * Robots fold the trees they sense into the grid as they go, and any robot can check a cell with a single broadcast read.
+ * Trees don't last forever, so every `REFRESH_INTERVAL` rounds each robot also rewrites the cells it can see all of,
+ * clearing any whose trees have since been chopped, destroyed or withered. Our own team's trees are left out
+ * altogether, as gardeners need to get back to their gardens, and they come and go as gardens are replanted.
+ */
+public strictfp class ObstacleGrid extends BitGrid {
+
+    public static final float CELL_SIZE = 2.0f;
+
+    // Robots refresh on different rounds, based on their ID, to spread the cost out.
+    private static final int REFRESH_INTERVAL = 10;
+
+    private final Team team;
+    private final int id;
+    private final float sensorRadius;
+
+    // Bitset of tree IDs which have already been folded in, so each tree is only processed once per robot.
+    private final int[] knownTrees = new int[(GameConstants.MAX_ROBOT_ID >>> 5) + 1];
+
+    // The cells around the robot which were found to be blocked during the current refresh, marked with `refreshes`
+    // so the window never needs clearing.
+    private final int windowSize;
+    private final int[] window;
+    private int refreshes = 0;
+
+    /**
+     * @param rc the RobotController to broadcast with
+     */
+    public ObstacleGrid(RobotController rc) {
+        super(rc, CELL_SIZE, Comms.OBSTACLE_GRID_CHANNEL);
+        this.team = rc.getTeam();
+        this.id = rc.getID();
+        this.sensorRadius = rc.getType().sensorRadius;
+        windowSize = (int) (2 * sensorRadius / CELL_SIZE) + 2;
+        window = new int[windowSize * windowSize];
+    }
+
+    /**
+     * Checks whether the cell containing a location is known to be blocked. Costs one broadcast read.
+     *
+     * @param location the MapLocation to check
+     * @return true if the cell is blocked, or is outside the grid entirely
+     * @throws GameActionException
+     */
+    public boolean isBlocked(MapLocation location) throws GameActionException {
+        int cell = cellOf(location);
+        return cell < 0 || isSet(cell);
+    }
+
+    /**
+     * Marks the cells covered by any trees we haven't seen before as blocked, and if it's this robot's turn to
+     * refresh, rewrites every cell in sight so cells whose trees have gone are cleared.
+     * Trees already folded in are skipped, and channels are only written when a bit actually changes.
+     *
+     * @param trees    every tree the robot can see, straight from `senseNearbyTrees`
+     * @param location where the robot is
+     * @param round    the current round
+     * @throws GameActionException
+     */
+    public void update(TreeInfo[] trees, MapLocation location, int round) throws GameActionException {
+        boolean refresh = (round + id) % REFRESH_INTERVAL == 0;
+        int windowX = (int) ((location.x - originX - sensorRadius) / CELL_SIZE);
+        int windowY = (int) ((location.y - originY - sensorRadius) / CELL_SIZE);
+        if (refresh) {
+            refreshes++;
+        }
+
+        for (TreeInfo tree : trees) {
+            if (tree.team == team) {
+                continue;
+            }
+            int known = knownTrees[tree.ID >>> 5];
+            int treeBit = 1 << (tree.ID & 31);
+            if ((known & treeBit) == 0) {
+                knownTrees[tree.ID >>> 5] = known | treeBit;
+                cover(tree, true, windowX, windowY);
+            }
+            if (refresh) {
+                cover(tree, false, windowX, windowY);
+            }
+        }
+
+        if (refresh) {
+            rewriteWindow(location, windowX, windowY);
+        }
+    }
+
+    /**
+     * Goes through the cells a tree blocks, either marking them in the grid straight away, or noting them in the
+     * window for `rewriteWindow`.
+     * <p>
+     * A cell is blocked if its centre lies within the tree. The cell holding the tree's centre always is, so small
+     * trees still register.
+     */
+    private void cover(TreeInfo tree, boolean mark, int windowX, int windowY) throws GameActionException {
+        float x = tree.location.x - originX;
+        float y = tree.location.y - originY;
+        float radius = tree.radius;
+        int centreX = (int) (x / CELL_SIZE);
+        int centreY = (int) (y / CELL_SIZE);
+
+        int minX = (int) ((x - radius) / CELL_SIZE);
+        int maxX = (int) ((x + radius) / CELL_SIZE);
+        int minY = (int) ((y - radius) / CELL_SIZE);
+        int maxY = (int) ((y + radius) / CELL_SIZE);
+        float radiusSquared = radius * radius;
+
+        for (int cellY = minY; cellY <= maxY; cellY++) {
+            float dy = (cellY + 0.5f) * CELL_SIZE - y;
+            for (int cellX = minX; cellX <= maxX; cellX++) {
+                float dx = (cellX + 0.5f) * CELL_SIZE - x;
+                if (dx * dx + dy * dy > radiusSquared && (cellX != centreX || cellY != centreY)) {
+                    continue;
+                }
+                if (mark) {
+                    if (inGrid(cellX, cellY)) {
+                        setCell(cellY * gridSize + cellX);
+                    }
+                }
+                else if (cellX >= windowX && cellY >= windowY && cellX < windowX + windowSize && cellY < windowY + windowSize) {
+                    window[(cellY - windowY) * windowSize + (cellX - windowX)] = refreshes;
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets every cell the robot can see all of to whatever the window says, so cells whose trees have gone are
+     * cleared. Cells only partly in sight are left alone, as a tree covering their centre might not be sensed.
+     * Neighbouring cells share a channel, so each channel is read once and only written if it changed.
+     */
+    private void rewriteWindow(MapLocation location, int windowX, int windowY) throws GameActionException {
+        float x = location.x - originX;
+        float y = location.y - originY;
+        float radiusSquared = sensorRadius * sensorRadius;
+
+        int channel = -1;
+        int bits = 0;
+        int updated = 0;
+        for (int row = 0; row < windowSize; row++) {
+            int cellY = windowY + row;
+            if (cellY < 0 || cellY >= gridSize) {
+                continue;
+            }
+            // The furthest corner of the cell from the robot must be in sight.
+            float dy = Math.max(Math.abs(cellY * CELL_SIZE - y), Math.abs((cellY + 1) * CELL_SIZE - y));
+            for (int column = 0; column < windowSize; column++) {
+                int cellX = windowX + column;
+                if (cellX < 0 || cellX >= gridSize) {
+                    continue;
+                }
+                float dx = Math.max(Math.abs(cellX * CELL_SIZE - x), Math.abs((cellX + 1) * CELL_SIZE - x));
+                if (dx * dx + dy * dy > radiusSquared) {
+                    continue;
+                }
+
+                int cell = cellY * gridSize + cellX;
+                int cellChannel = firstChannel + (cell >>> 5);
+                if (cellChannel != channel) {
+                    if (updated != bits) {
+                        rc.broadcastInt(channel, updated);
+                    }
+                    channel = cellChannel;
+                    bits = rc.readBroadcastInt(channel);
+                    updated = bits;
+                }
+                if (window[row * windowSize + column] == refreshes) {
+                    updated |= 1 << (cell & 31);
+                }
+                else {
+                    updated &= ~(1 << (cell & 31));
+                }
+            }
+        }
+        if (updated != bits) {
+            rc.broadcastInt(channel, updated);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * Records how many bytecodes each phase of a robot's turn uses, and keeps a running histogram per phase so we can see
+ * min/mean/p95/max figures for this robot type.
+ * <p>
+ * Every public method is prefixed with `debug_`, so the engine strips the calls entirely when it is run with
+ * `bc.engine.debug-methods=false` (as `runQuiet` and tournament matches are), meaning the profiler costs nothing there.
+ * <p>
+ * Each robot gets its own copy of these statics, so the figures are for a single robot. Every report line is tagged
+ * with the robot type and ID so the output of a whole match can be grepped and combined per type.
+ */
+public strictfp class Profiler {
+
+    public static final int MAX_PHASES      = 16;
+    public static final int TURN_PHASE      = 0; // Slot 0 is reserved for the whole turn.
+    public static final int BUCKET_WIDTH    = 100;
+    public static final int REPORT_INTERVAL = 250;
+
+    private static RobotController rc;
+    private static int bytecodeLimit;
+    private static int numBuckets;
+
+    private static final String[] names = new String[MAX_PHASES];
+    private static final int[] startBytecodes = new int[MAX_PHASES];
+    private static final int[] startRounds = new int[MAX_PHASES];
+    private static final int[] counts = new int[MAX_PHASES];
+    private static final long[] totals = new long[MAX_PHASES];
+    private static final int[] minimums = new int[MAX_PHASES];
+    private static final int[] maximums = new int[MAX_PHASES];
+    private static final int[][] histograms = new int[MAX_PHASES][];
+
+    private static int exceptions = 0;
+    private static int overruns = 0;
+
+    /**
+     * Sets up the profiler for this robot. Must be called once before any other profiler method.
+     *
+     * @param rc the RobotController for this robot
+     */
+    public static void debug_init(RobotController rc) {
+        Profiler.rc = rc;
+        bytecodeLimit = rc.getType().bytecodeLimit;
+        numBuckets = bytecodeLimit / BUCKET_WIDTH + 2; // The final bucket catches anything which overran the limit.
+        names[TURN_PHASE] = "turn";
+        for (int i = 0; i < MAX_PHASES; i++) {
+            minimums[i] = Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Marks the start of the robot's turn.
+     */
+    public static void debug_beginTurn() {
+        debug_beginPhase(TURN_PHASE, "turn");
+    }
+
+    /**
+     * Marks the end of the robot's turn, and prints a report every `REPORT_INTERVAL` rounds.
+     */
+    public static void debug_endTurn() {
+        debug_endPhase(TURN_PHASE);
+        if (rc.getRoundNum() % REPORT_INTERVAL == 0) {
+            debug_report();
+        }
+    }
+
+    /**
+     * Marks the start of a phase of the turn.
+     *
+     * @param phase a slot between 1 and `MAX_PHASES - 1`, unique to this phase within the robot
+     * @param name  a human readable name for the phase, used in the report
+     */
+    public static void debug_beginPhase(int phase, String name) {
+        names[phase] = name;
+        startRounds[phase] = rc.getRoundNum();
+        startBytecodes[phase] = BytecodeCounter.getBytecodeNum();
+    }
+
+    /**
+     * Marks the end of a phase, adding the number of bytecodes used since `debug_beginPhase` to the phase's histogram.
+     *
+     * @param phase the same slot given to `debug_beginPhase`
+     */
+    public static void debug_endPhase(int phase) {
+        int used = BytecodeCounter.getBytecodeNum() - startBytecodes[phase];
+
+        // If the phase ran over the end of the turn, the bytecode counter will have been reset in between, so add on
+        // the full limit for every round we slipped.
+        int roundsSlipped = rc.getRoundNum() - startRounds[phase];
+        if (roundsSlipped > 0) {
+            used += roundsSlipped * bytecodeLimit;
+            if (phase == TURN_PHASE) {
+                overruns++;
+            }
+        }
+
+        if (histograms[phase] == null) {
+            histograms[phase] = new int[numBuckets];
+        }
+        int bucket = used / BUCKET_WIDTH;
+        histograms[phase][bucket < numBuckets ? bucket : numBuckets - 1]++;
+
+        counts[phase]++;
+        totals[phase] += used;
+        if (used < minimums[phase]) {
+            minimums[phase] = used;
+        }
+        if (used > maximums[phase]) {
+            maximums[phase] = used;
+        }
+    }
+
+    /**
+     * Records that an exception was caught, each of which costs the robot `EXCEPTION_BYTECODE_PENALTY` bytecodes.
+     */
+    public static void debug_recordException() {
+        exceptions++;
+    }
+
+    /**
+     * Prints a line per recorded phase with the min/mean/p95/max bytecodes used, followed by exception and overrun totals.
+     */
+    public static void debug_report() {
+        String tag = "[profile] " + rc.getType() + " #" + rc.getID() + " round " + rc.getRoundNum();
+        for (int i = 0; i < MAX_PHASES; i++) {
+            if (counts[i] == 0) {
+                continue;
+            }
+            System.out.println(tag + " " + names[i] +
+                    " n="    + counts[i] +
+                    " min="  + minimums[i] +
+                    " mean=" + (totals[i] / counts[i]) +
+                    " p95="  + percentile(i, 0.95f) +
+                    " max="  + maximums[i]
+            );
+        }
+        System.out.println(tag + " exceptions=" + exceptions +
+                " (" + (exceptions * GameConstants.EXCEPTION_BYTECODE_PENALTY) + " bytecodes)" +
+                " overruns=" + overruns
+        );
+    }
+
+    /**
+     * Estimates a percentile for a phase from its histogram, accurate to within `BUCKET_WIDTH` bytecodes.
+     *
+     * @param phase    the phase slot
+     * @param fraction the percentile to find, for example .95
+     * @return the upper bound of the bucket containing the given percentile
+     */
+    private static int percentile(int phase, float fraction) {
+        int target = (int) Math.ceil(counts[phase] * fraction);
+        int seen = 0;
+        for (int bucket = 0; bucket < numBuckets; bucket++) {
+            seen += histograms[phase][bucket];
+            if (seen >= target) {
+                return bucket == numBuckets - 1 ? maximums[phase] : (bucket + 1) * BUCKET_WIDTH;
+            }
+        }
+        return maximums[phase];
+    }
+}
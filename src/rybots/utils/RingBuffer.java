@@ -0,0 +1,80 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * A message queue stored in the broadcast array as a ring of round-stamped entries.
+ * <p>
+ * The whole team shares a write cursor, which counts every entry ever pushed, so the next entry goes in slot
+ * `cursor % capacity`. Each robot keeps its own read cursor, so every turn it only reads the entries pushed since it last
+ * looked, rather than rescanning the whole ring. Entries older than `maxAge` rounds are skipped, and if a reader falls
+ * more than a whole ring behind it jumps forward to the oldest entry which hasn't been overwritten.
+ * <p>
+ * Values are stamped with `Comms.stamp`, so they must fit in 20 bits.
+ */
+public strictfp class RingBuffer {
+
+    private final RobotController rc;
+    private final int cursorChannel;
+    private final int firstChannel;
+    private final int capacity;
+    private final int maxAge;
+
+    private int readCursor = 0;
+
+    /**
+     * @param rc            the RobotController to broadcast with
+     * @param cursorChannel the channel holding the shared write cursor
+     * @param firstChannel  the first channel of the ring
+     * @param capacity      the number of channels in the ring
+     * @param maxAge        entries more than this many rounds old are ignored by readers
+     */
+    public RingBuffer(RobotController rc, int cursorChannel, int firstChannel, int capacity, int maxAge) {
+        this.rc = rc;
+        this.cursorChannel = cursorChannel;
+        this.firstChannel = firstChannel;
+        this.capacity = capacity;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Pushes a value onto the ring, stamped with the current round. Costs one read and two broadcasts.
+     *
+     * @param value a value between 0 and 2^20 - 1
+     * @throws GameActionException
+     */
+    public void push(int value) throws GameActionException {
+        int writeCursor = rc.readBroadcastInt(cursorChannel);
+        rc.broadcastInt(firstChannel + writeCursor % capacity, Comms.stamp(rc.getRoundNum(), value));
+        rc.broadcastInt(cursorChannel, writeCursor + 1);
+    }
+
+    /**
+     * Reads every fresh entry pushed since the last call into `out`, oldest first, and moves this robot's read cursor on.
+     * Entries are returned with their round stamp, use `Comms.valueOf` and `Comms.roundOf` to unpack them.
+     *
+     * @param out an array to fill with entries, reused between turns to avoid allocating. At most `out.length` entries
+     *            are read, any more are left for the next call.
+     * @return the number of entries written to `out`
+     * @throws GameActionException
+     */
+    public int readNew(int[] out) throws GameActionException {
+        int writeCursor = rc.readBroadcastInt(cursorChannel);
+
+        // Anything more than a full ring behind has already been overwritten.
+        if (writeCursor - readCursor > capacity) {
+            readCursor = writeCursor - capacity;
+        }
+
+        int oldestRound = rc.getRoundNum() - maxAge;
+        int count = 0;
+        while (readCursor < writeCursor && count < out.length) {
+            int entry = rc.readBroadcastInt(firstChannel + readCursor % capacity);
+            readCursor++;
+            if (Comms.roundOf(entry) >= oldestRound) {
+                out[count++] = entry;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,87 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * A tiny xorshift random number generator, one per robot.
+ * <p>
+ * `Math.random` and `java.util.Random` can't be seeded per match and cost far more bytecodes than a few shifts and
+ * xors. Each robot's generator is seeded from its ID and `MATCH_SEED`, mixed with the initial archon locations so
+ * different maps play differently. With `DETERMINISTIC` on, two runs of the same build on the same map make exactly
+ * the same choices, so bytecode and outcome profiles can be compared run to run. Turn it off to add a pinch of
+ * real randomness to the seed for actual matches.
+ */
+public strictfp class Rng {
+
+    public static final boolean DETERMINISTIC = true;
+    public static final int     MATCH_SEED    = 0x2017B07;
+
+    private int state;
+
+    /**
+     * @param rc the RobotController for this robot
+     */
+    public Rng(RobotController rc) {
+        int seed = MATCH_SEED ^ (rc.getID() * 0x9E3779B9);
+        for (MapLocation archon : rc.getInitialArchonLocations(rc.getTeam())) {
+            seed = seed * 31 + Float.floatToIntBits(archon.x);
+            seed = seed * 31 + Float.floatToIntBits(archon.y);
+        }
+        if (!DETERMINISTIC) {
+            seed ^= (int) (Math.random() * Integer.MAX_VALUE);
+        }
+        setSeed(seed);
+    }
+
+    /**
+     * Restarts the sequence from a given seed.
+     *
+     * @param seed any int, zero included
+     */
+    public void setSeed(int seed) {
+        // Xorshift gets stuck on zero, so nudge it off.
+        state = seed == 0 ? 0x6D2B79F5 : seed;
+    }
+
+    /**
+     * @return the next 32 random bits
+     */
+    public int nextInt() {
+        int x = state;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        state = x;
+        return x;
+    }
+
+    /**
+     * @param bound the upper bound, exclusive. Must be positive.
+     * @return a random int between 0 and `bound - 1`
+     */
+    public int nextInt(int bound) {
+        return (int) (((nextInt() >>> 1) * (long) bound) >>> 31);
+    }
+
+    /**
+     * @return a random float between 0 inclusive and 1 exclusive
+     */
+    public float nextFloat() {
+        return (nextInt() >>> 8) / (float) (1 << 24);
+    }
+
+    /**
+     * @param chance the probability of returning true, between 0 and 1
+     * @return true with the given probability
+     */
+    public boolean chance(float chance) {
+        return nextFloat() < chance;
+    }
+
+    /**
+     * @return a random angle in radians, between 0 and 2 * PI
+     */
+    public float nextAngle() {
+        return nextFloat() * (float) (Math.PI * 2);
+    }
+}
@@ -0,0 +1,150 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * A snapshot of what a robot can sense this turn, shared by every phase of the turn.
+ * <p>
+ * Each category is sensed the first time a phase asks for it and cached until `reset` is called at the start of the
+ * next turn, so however many phases need the nearby enemies, we only pay for sensing them once. The same instance is
+ * reused every turn to avoid allocating a new one.
+ * <p>
+ * Sensed arrays are from wherever the robot was when they were first asked for. After the robot moves, call `moved`
+ * so `getLocation` is refreshed.
+ */
+public strictfp class TurnContext {
+
+    private final RobotController rc;
+    private final RobotType type;
+    private final Team team;
+    private final Team enemy;
+
+    private int roundNum;
+    private MapLocation location;
+    private RobotInfo[] enemies;
+    private RobotInfo[] allies;
+    private BulletInfo[] bullets;
+    private BulletInfo[] threateningBullets;
+    private TreeInfo[] trees;
+
+    /**
+     * @param rc the RobotController for this robot
+     */
+    public TurnContext(RobotController rc) {
+        this.rc = rc;
+        this.type = rc.getType();
+        this.team = rc.getTeam();
+        this.enemy = team.opponent();
+    }
+
+    /**
+     * Forgets everything sensed last turn. Called at the start of every turn.
+     */
+    public void reset() {
+        roundNum = rc.getRoundNum();
+        location = null;
+        enemies = null;
+        allies = null;
+        bullets = null;
+        threateningBullets = null;
+        trees = null;
+    }
+
+    /**
+     * Lets the context know the robot has moved, so its location is looked up again.
+     */
+    public void moved() {
+        location = null;
+    }
+
+    public RobotType getType() {
+        return type;
+    }
+
+    public Team getTeam() {
+        return team;
+    }
+
+    public Team getEnemy() {
+        return enemy;
+    }
+
+    public int getRoundNum() {
+        return roundNum;
+    }
+
+    /**
+     * @return the robot's current location
+     */
+    public MapLocation getLocation() {
+        if (location == null) {
+            location = rc.getLocation();
+        }
+        return location;
+    }
+
+    /**
+     * @return every enemy robot within sensor range, closest first
+     */
+    public RobotInfo[] getEnemies() {
+        if (enemies == null) {
+            enemies = rc.senseNearbyRobots(-1, enemy);
+        }
+        return enemies;
+    }
+
+    /**
+     * @return every friendly robot within sensor range, closest first
+     */
+    public RobotInfo[] getAllies() {
+        if (allies == null) {
+            allies = rc.senseNearbyRobots(-1, team);
+        }
+        return allies;
+    }
+
+    /**
+     * @return every bullet within bullet sight range, closest first
+     */
+    public BulletInfo[] getBullets() {
+        if (bullets == null) {
+            bullets = rc.senseNearbyBullets();
+        }
+        return bullets;
+    }
+
+    /**
+     * @return every bullet within bullet sight range which could hit the robot where it stood when first asked, in the
+     *         next few rounds, closest first (see `EvasionPlanner.threatens`)
+     */
+    public BulletInfo[] getThreateningBullets() {
+        if (threateningBullets == null) {
+            BulletInfo[] all = getBullets();
+            MapLocation myLocation = getLocation();
+            BulletInfo[] threatening = new BulletInfo[all.length];
+            int count = 0;
+            for (BulletInfo bullet : all) {
+                if (EvasionPlanner.threatens(bullet, myLocation, type)) {
+                    threatening[count++] = bullet;
+                }
+            }
+            if (count < all.length) {
+                BulletInfo[] trimmed = new BulletInfo[count];
+                System.arraycopy(threatening, 0, trimmed, 0, count);
+                threatening = trimmed;
+            }
+            threateningBullets = threatening;
+        }
+        return threateningBullets;
+    }
+
+    /**
+     * @return every tree within sensor range, of any team, closest first
+     */
+    public TreeInfo[] getTrees() {
+        if (trees == null) {
+            trees = rc.senseNearbyTrees();
+        }
+        return trees;
+    }
+}
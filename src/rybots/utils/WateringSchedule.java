@@ -0,0 +1,136 @@
+package rybots.utils;
+
+import battlecode.common.*;
+
+/**
+ * Keeps track of the health of the trees a gardener looks after, so it can pick which one to water without sensing
+ * them all every turn.
+ * <p>
+ * Bullet trees lose `BULLET_TREE_DECAY_RATE` health a round and gain `WATER_HEALTH_REGEN_RATE` when watered, so their
+ * health can be predicted from the last time it was sensed, and watering a tree just adds to the prediction. The trees
+ * are only sensed again every `RESENSE_INTERVAL` rounds, to pick up any planted, destroyed or damaged since, or sooner
+ * if one of them couldn't be watered, which usually means it's gone.
+ */
+public strictfp class WateringSchedule {
+
+    // A garden has six trees at most, and any more in reach are from a neighbouring garden.
+    private static final int MAX_TREES = 8;
+    private static final int RESENSE_INTERVAL = 20;
+
+    private final RobotController rc;
+    private final int[] ids = new int[MAX_TREES];
+    private final MapLocation[] locations = new MapLocation[MAX_TREES];
+    private final float[] health = new float[MAX_TREES];
+    private final int[] sensedRounds = new int[MAX_TREES];
+    private int count = 0;
+    private int nextSenseRound = 0;
+
+    /**
+     * @param rc the RobotController for this robot
+     */
+    public WateringSchedule(RobotController rc) {
+        this.rc = rc;
+    }
+
+    /**
+     * Senses the trees in reach, if it's time to.
+     *
+     * @param round the current round
+     * @param reach how far from this robot trees can be watered, measured to the nearest edge of the tree
+     * @param team  the team whose trees to look after
+     */
+    public void senseIfDue(int round, float reach, Team team) {
+        if (round < nextSenseRound) {
+            return;
+        }
+        TreeInfo[] trees = rc.senseNearbyTrees(reach, team);
+        count = 0;
+        for (int i = 0; i < trees.length && count < MAX_TREES; i++) {
+            add(trees[i], round);
+        }
+        nextSenseRound = round + RESENSE_INTERVAL;
+    }
+
+    /**
+     * Starts keeping track of a tree, such as one just planted.
+     * <p>
+     * If `MAX_TREES` are already being tracked, the new tree takes the place of the one furthest from this robot, which
+     * will be on the edge of a neighbouring garden rather than one of our own.
+     *
+     * @param tree  the tree, as sensed
+     * @param round the round it was sensed in
+     */
+    public void add(TreeInfo tree, int round) {
+        int index = count < MAX_TREES ? count++ : furthest();
+        ids[index] = tree.ID;
+        locations[index] = tree.location;
+        health[index] = tree.health;
+        sensedRounds[index] = round;
+    }
+
+    /**
+     * @param round the current round
+     * @return the index of the tree predicted to have the least health, or -1 if there are none
+     */
+    public int thirstiest(int round) {
+        int thirstiest = -1;
+        float lowest = Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            float predicted = predict(i, round);
+            if (predicted < lowest) {
+                thirstiest = i;
+                lowest = predicted;
+            }
+        }
+        return thirstiest;
+    }
+
+    /**
+     * Records that a tree has been watered, without sensing it.
+     *
+     * @param index the index of the tree, from `thirstiest`
+     * @param round the current round
+     */
+    public void watered(int index, int round) {
+        health[index] = Math.min(GameConstants.BULLET_TREE_MAX_HEALTH, predict(index, round) + GameConstants.WATER_HEALTH_REGEN_RATE);
+        sensedRounds[index] = round;
+    }
+
+    /**
+     * Makes sure the trees are sensed again next time, such as when one of them couldn't be watered.
+     */
+    public void senseSoon() {
+        nextSenseRound = 0;
+    }
+
+    /**
+     * @param index the index of the tree, from `thirstiest`
+     * @return the tree's ID
+     */
+    public int getId(int index) {
+        return ids[index];
+    }
+
+    /**
+     * @param index the index of the tree, from `thirstiest`
+     * @return where the tree is
+     */
+    public MapLocation getLocation(int index) {
+        return locations[index];
+    }
+
+    private int furthest() {
+        MapLocation myLocation = rc.getLocation();
+        int furthest = 0;
+        for (int i = 1; i < count; i++) {
+            if (myLocation.distanceSquaredTo(locations[i]) > myLocation.distanceSquaredTo(locations[furthest])) {
+                furthest = i;
+            }
+        }
+        return furthest;
+    }
+
+    private float predict(int index, int round) {
+        return health[index] - GameConstants.BULLET_TREE_DECAY_RATE * (round - sensedRounds[index]);
+    }
+}
@@ -0,0 +1,39 @@
+package rybots.bot;
+
+import battlecode.common.RobotType;
+import battlecode.common.Team;
+import org.junit.Test;
+import rybots.sim.World;
+import rybots.utils.Comms;
+
+import static org.junit.Assert.*;
+import static rybots.bot.Scenarios.assertNoExceptions;
+
+public class ArchonScenarioTest {
+
+    @Test
+    public void forgetsObstaclesWhichHaveGoneAndIgnoresOurOwnTrees() {
+        World world = new World(100, 100);
+        world.spawn(RobotType.ARCHON, Team.A, 50, 50);
+        world.spawnInert(RobotType.ARCHON, Team.B, 90, 90);
+        world.setTeamBullets(Team.A, 0);
+        World.Body neutral = world.addTree(Team.NEUTRAL, 53, 50, 1, 50);
+        world.addTree(Team.A, 47, 50, 1, 50);
+
+        world.run(20);
+        assertTrue("neutral tree never made it into the obstacle grid", obstacleCells(world) > 0);
+
+        neutral.health = 0;
+        world.run(20);
+        assertNoExceptions(world);
+        assertEquals("cells still blocked", 0, obstacleCells(world));
+    }
+
+    private static int obstacleCells(World world) {
+        int cells = 0;
+        for (int i = 0; i < Comms.OBSTACLE_GRID_COUNT; i++) {
+            cells += Integer.bitCount(world.readBroadcast(Team.A, Comms.OBSTACLE_GRID_CHANNEL + i));
+        }
+        return cells;
+    }
+}
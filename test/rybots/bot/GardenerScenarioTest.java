@@ -0,0 +1,56 @@
+package rybots.bot;
+
+import battlecode.common.RobotType;
+import battlecode.common.Team;
+import org.junit.Test;
+import rybots.sim.World;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static rybots.bot.Scenarios.assertNoExceptions;
+
+public class GardenerScenarioTest {
+
+    @Test
+    public void plantsAndKeepsAGardenOnAnOpenField() {
+        World world = new World(100, 100).withInertArchons(20, 50, 80, 50);
+        world.spawn(RobotType.GARDENER, Team.A, 25, 50);
+
+        world.run(400);
+
+        assertNoExceptions(world);
+        assertTrue("planted " + world.countTrees(Team.A) + " trees", world.countTrees(Team.A) >= 3);
+
+        // Trees decay, so if they're still standing after this long the gardener has been watering them.
+        for (World.Body tree : world.getTrees()) {
+            assertTrue("tree " + tree.id + " is dying", tree.health > tree.maxHealth / 2);
+        }
+    }
+
+    @Test
+    public void looksAfterAnOrphanedGarden() {
+        World world = new World(100, 100).withInertArchons(20, 50, 80, 50);
+        World.Body original = world.spawn(RobotType.GARDENER, Team.A, 23, 50);
+        world.setTeamBullets(Team.A, 1000);
+        world.run(150);
+        List<Integer> orphans = new ArrayList<>();
+        for (World.Body tree : world.getTrees()) {
+            orphans.add(tree.id);
+        }
+
+        // Without a gardener, trees wither away long before this is up.
+        original.health = 0;
+        world.run(20);
+        world.spawn(RobotType.GARDENER, Team.A, 23, 52);
+        world.run(200);
+
+        assertNoExceptions(world);
+        assertFalse("no garden was planted", orphans.isEmpty());
+        for (World.Body tree : world.getTrees()) {
+            orphans.remove((Integer) tree.id);
+        }
+        assertTrue("trees " + orphans + " withered", orphans.isEmpty());
+    }
+}
@@ -0,0 +1,21 @@
+package rybots.bot;
+
+import rybots.sim.World;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Assertions shared by the scenario tests.
+ */
+final class Scenarios {
+
+    private Scenarios() {
+    }
+
+    /**
+     * Fails, listing them, if any bot threw an exception out of its turn.
+     */
+    static void assertNoExceptions(World world) {
+        assertEquals("exceptions: " + world.getExceptions(), 0, world.getExceptions().size());
+    }
+}
@@ -0,0 +1,73 @@
+package rybots.bot;
+
+import battlecode.common.RobotType;
+import battlecode.common.Team;
+import org.junit.Test;
+import rybots.sim.World;
+import rybots.utils.Comms;
+
+import static org.junit.Assert.*;
+import static rybots.bot.Scenarios.assertNoExceptions;
+
+public class ScoutScenarioTest {
+
+    @Test
+    public void findsAndShakesBulletTreesAcrossTheMap() {
+        World world = new World(100, 100).withInertArchons(10, 50, 90, 50);
+        world.spawn(RobotType.SCOUT, Team.A, 12, 50);
+        world.setTeamBullets(Team.A, 0);
+
+        // Scattered well out of sight of the scout's starting point, so it has to go looking for them.
+        float[][] spots = { { 50, 10 }, { 50, 90 }, { 85, 15 }, { 85, 85 }, { 30, 75 } };
+        for (float[] spot : spots) {
+            world.addTree(Team.NEUTRAL, spot[0], spot[1], 2, 50).containedBullets = 20;
+        }
+
+        world.run(500);
+
+        assertNoExceptions(world);
+        for (World.Body tree : world.getTrees()) {
+            assertEquals("tree at " + tree.location + " wasn't shaken", 0, tree.containedBullets);
+        }
+        assertTrue("only " + world.getTeamBullets(Team.A) + " bullets", world.getTeamBullets(Team.A) >= 20 * spots.length);
+    }
+
+    @Test
+    public void givesUpOnBulletTreesItCantReach() {
+        World world = new World(100, 100).withInertArchons(10, 50, 90, 50);
+        world.spawn(RobotType.SCOUT, Team.A, 40, 50);
+        world.setTeamBullets(Team.A, 0);
+
+        // Scouts fly over trees, but not robots, so a tight ring of them keeps it out of shaking range.
+        World.Body walledIn = world.addTree(Team.NEUTRAL, 50, 50, 1, 50);
+        walledIn.containedBullets = 20;
+        for (int i = 0; i < 8; i++) {
+            double angle = i * Math.PI / 4;
+            world.spawnInert(RobotType.SOLDIER, Team.B, 50 + 2.1f * (float) Math.cos(angle), 50 + 2.1f * (float) Math.sin(angle));
+        }
+        World.Body reachable = world.addTree(Team.NEUTRAL, 80, 85, 1, 50);
+        reachable.containedBullets = 20;
+
+        world.run(400);
+
+        assertNoExceptions(world);
+        assertEquals("walled in tree was shaken", 20, walledIn.containedBullets);
+        assertEquals("reachable tree wasn't shaken", 0, reachable.containedBullets);
+    }
+
+    @Test
+    public void findsAndPublishesEveryEdgeOfTheMap() {
+        World world = new World(137.5f, 212.25f, 70, 55).withInertArchons(150, 230, 195, 250);
+        world.spawn(RobotType.SCOUT, Team.A, 152, 232);
+
+        world.run(300);
+
+        assertNoExceptions(world);
+        assertEquals("edges found", 0xF, world.readBroadcast(Team.A, Comms.MAP_BOUNDS_CHANNEL));
+        float[] edges = { 137.5f, 212.25f, 207.5f, 267.25f };
+        for (int edge = 0; edge < edges.length; edge++) {
+            float found = Float.intBitsToFloat(world.readBroadcast(Team.A, Comms.MAP_BOUNDS_CHANNEL + 1 + edge));
+            assertTrue("edge " + edge + " found at " + found + ", not " + edges[edge], Math.abs(found - edges[edge]) < 0.05f);
+        }
+    }
+}
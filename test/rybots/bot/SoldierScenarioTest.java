@@ -0,0 +1,128 @@
+package rybots.bot;
+
+import battlecode.common.MapLocation;
+import battlecode.common.RobotType;
+import battlecode.common.Team;
+import org.junit.Test;
+import rybots.sim.World;
+import rybots.utils.Comms;
+
+import static org.junit.Assert.*;
+import static rybots.bot.Scenarios.assertNoExceptions;
+
+public class SoldierScenarioTest {
+
+    private static final int ROUNDS = 60;
+
+    @Test
+    public void dodgesCrossfireBetterThanStandingStill() {
+        World dodging = crossfire(true);
+        World standing = crossfire(false);
+
+        assertNoExceptions(dodging);
+
+        float dodgingHealth = soldierHealth(dodging);
+        float standingHealth = soldierHealth(standing);
+        assertTrue("dodging soldier ended on " + dodgingHealth + ", standing soldier on " + standingHealth,
+                dodgingHealth > standingHealth);
+    }
+
+    @Test
+    public void shootsBackAtAnEnemyInRange() {
+        World world = crossfire(true);
+        World.Body enemy = world.getRobots().stream()
+                .filter(robot -> robot.team == Team.B && robot.type == RobotType.SOLDIER)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+
+        assertTrue("enemy soldier is untouched", enemy.health < enemy.maxHealth);
+    }
+
+    @Test
+    public void skipsLowPriorityPhasesWhenShortOfBytecodes() {
+        World mapping = amongTrees(-1);
+        assertNotEquals("soldier with a full budget didn't map the trees", 0, obstacleBits(mapping));
+
+        // Enough for the critical phases, but not for moving about or mapping the trees.
+        World world = amongTrees(1000);
+        World.Body soldier = soldier(world);
+
+        assertNoExceptions(world);
+        assertEquals("soldier mapped the trees", 0, obstacleBits(world));
+        assertEquals("soldier moved", new MapLocation(50, 50), soldier.location);
+
+        World.Body enemy = world.spawnInert(RobotType.SOLDIER, Team.B, 56, 50);
+        world.run(20);
+
+        assertNoExceptions(world);
+        assertTrue("enemy soldier is untouched", enemy.health < enemy.maxHealth);
+    }
+
+    /**
+     * Plays a soldier with a few trees around it and nothing to shoot at, on the given bytecode budget.
+     */
+    private static World amongTrees(int bytecodeBudget) {
+        World world = new World(100, 100).withInertArchons(10, 10, 90, 90);
+        world.spawn(RobotType.SOLDIER, Team.A, 50, 50);
+        world.addTree(Team.NEUTRAL, 45, 50, 1, 50);
+        world.addTree(Team.NEUTRAL, 50, 44, 2, 50);
+        world.addTree(Team.NEUTRAL, 53, 54, 1, 50);
+        world.setBytecodeBudget(bytecodeBudget);
+        world.run(20);
+        return world;
+    }
+
+    private static int obstacleBits(World world) {
+        int bits = 0;
+        for (int channel = 0; channel < Comms.OBSTACLE_GRID_COUNT; channel++) {
+            bits |= world.readBroadcast(Team.A, Comms.OBSTACLE_GRID_CHANNEL + channel);
+        }
+        return bits;
+    }
+
+    /**
+     * Plays a soldier standing between two streams of fire, one from the west and one from the south, with an
+     * enemy soldier standing to the east for it to shoot at. Every few rounds a bullet is aimed at wherever the
+     * soldier is standing, far enough away that it has time to get out of the way.
+     */
+    private static World crossfire(boolean controlled) {
+        World world = new World(100, 100).withInertArchons(10, 10, 90, 90);
+        world.spawnInert(RobotType.SOLDIER, Team.B, 56, 50);
+        if (controlled) {
+            world.spawn(RobotType.SOLDIER, Team.A, 50, 50);
+        }
+        else {
+            world.spawnInert(RobotType.SOLDIER, Team.A, 50, 50);
+        }
+
+        for (int round = 0; round < ROUNDS; round++) {
+            World.Body soldier = soldier(world);
+            if (soldier == null) {
+                break;
+            }
+            if (round % 3 == 0) {
+                MapLocation target = soldier.location;
+                MapLocation west = target.translate(-8, 0.3f);
+                MapLocation south = target.translate(-0.3f, -8);
+                world.addBullet(west.x, west.y, west.directionTo(target), RobotType.SOLDIER.bulletSpeed, 2);
+                world.addBullet(south.x, south.y, south.directionTo(target), RobotType.SOLDIER.bulletSpeed, 2);
+            }
+            world.step();
+        }
+        return world;
+    }
+
+    private static World.Body soldier(World world) {
+        for (World.Body robot : world.getRobots()) {
+            if (robot.team == Team.A && robot.type == RobotType.SOLDIER) {
+                return robot;
+            }
+        }
+        return null;
+    }
+
+    private static float soldierHealth(World world) {
+        World.Body soldier = soldier(world);
+        return soldier == null ? 0 : soldier.health;
+    }
+}
@@ -0,0 +1,560 @@
+package rybots.sim;
+
+import battlecode.common.*;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The RobotController handed to a bot running in a `World`.
+ * <p>
+ * Implemented as a dynamic proxy, so it doesn't have to spell out every one of RobotController's many methods: each
+ * call is dispatched by name to a method here with the same name and parameters. Anything the simulator doesn't
+ * model returns zero, false or null, the same as a robot which can't see or do anything, so a bot calling something
+ * new won't fall over. Actions follow the engine's rules closely enough for our bots, and throw the same
+ * GameActionExceptions when they're broken.
+ */
+public class SimulatedRobotController implements InvocationHandler {
+
+    private final World world;
+    private final World.Body me;
+
+    private SimulatedRobotController(World world, World.Body me) {
+        this.world = world;
+        this.me = me;
+    }
+
+    static RobotController create(World world, World.Body me) {
+        return (RobotController) Proxy.newProxyInstance(SimulatedRobotController.class.getClassLoader(),
+                new Class<?>[] { RobotController.class }, new SimulatedRobotController(world, me));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        switch (method.getName()) {
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "SimulatedRobotController(" + me.type + " #" + me.id + " at " + me.location + ")";
+            default:
+                break;
+        }
+
+        Method implementation;
+        try {
+            implementation = SimulatedRobotController.class.getMethod(method.getName(), method.getParameterTypes());
+        }
+        catch (NoSuchMethodException e) {
+            return defaultValue(method.getReturnType());
+        }
+        try {
+            return implementation.invoke(this, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == float.class) {
+            return 0f;
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Robot and game state
+
+    public int getRoundNum() {
+        return world.getRoundNum();
+    }
+
+    public int getRoundLimit() {
+        return GameConstants.GAME_DEFAULT_ROUNDS;
+    }
+
+    public float getTeamBullets() {
+        return world.teamBullets(me.team);
+    }
+
+    public MapLocation[] getInitialArchonLocations(Team team) {
+        return world.getInitialArchonLocations(team);
+    }
+
+    public int getID() {
+        return me.id;
+    }
+
+    public Team getTeam() {
+        return me.team;
+    }
+
+    public RobotType getType() {
+        return me.type;
+    }
+
+    public MapLocation getLocation() {
+        return me.location;
+    }
+
+    public float getHealth() {
+        return me.health;
+    }
+
+    public int getRobotCount() {
+        int count = 0;
+        for (World.Body robot : world.robots()) {
+            count += robot.team == me.team ? 1 : 0;
+        }
+        return count;
+    }
+
+    public int getTreeCount() {
+        return world.countTrees(me.team);
+    }
+
+    public boolean hasMoved() {
+        return me.moved;
+    }
+
+    public boolean hasAttacked() {
+        return me.attacked;
+    }
+
+    public boolean isBuildReady() {
+        return me.buildCooldown == 0;
+    }
+
+    public int getBuildCooldownTurns() {
+        return me.buildCooldown;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Sensing
+
+    public boolean canSenseLocation(MapLocation location) {
+        return me.location.distanceTo(location) <= me.type.sensorRadius;
+    }
+
+    public boolean canSenseAllOfCircle(MapLocation center, float radius) {
+        return me.location.distanceTo(center) + radius <= me.type.sensorRadius;
+    }
+
+    public boolean canSensePartOfCircle(MapLocation center, float radius) {
+        return me.location.distanceTo(center) - radius <= me.type.sensorRadius;
+    }
+
+    public boolean onTheMap(MapLocation location) throws GameActionException {
+        if (!canSenseLocation(location)) {
+            throw new GameActionException(GameActionExceptionType.OUT_OF_RANGE, "Target location not within sensor range");
+        }
+        return world.isOnMap(location, 0);
+    }
+
+    public boolean onTheMap(MapLocation center, float radius) throws GameActionException {
+        if (!canSenseAllOfCircle(center, radius)) {
+            throw new GameActionException(GameActionExceptionType.OUT_OF_RANGE, "Target circle not completely within sensor range");
+        }
+        return world.isOnMap(center, radius);
+    }
+
+    public boolean isCircleOccupied(MapLocation center, float radius) throws GameActionException {
+        if (!canSenseAllOfCircle(center, radius)) {
+            throw new GameActionException(GameActionExceptionType.OUT_OF_RANGE, "Target circle not completely within sensor range");
+        }
+        return world.isOccupied(center, radius, null, true);
+    }
+
+    public boolean isCircleOccupiedExceptByThisRobot(MapLocation center, float radius) throws GameActionException {
+        if (!canSenseAllOfCircle(center, radius)) {
+            throw new GameActionException(GameActionExceptionType.OUT_OF_RANGE, "Target circle not completely within sensor range");
+        }
+        return world.isOccupied(center, radius, me, true);
+    }
+
+    public boolean isLocationOccupied(MapLocation location) throws GameActionException {
+        return isCircleOccupied(location, 0.001f);
+    }
+
+    public TreeInfo senseTreeAtLocation(MapLocation location) throws GameActionException {
+        if (!canSenseLocation(location)) {
+            throw new GameActionException(GameActionExceptionType.OUT_OF_RANGE, "Target location not within sensor range");
+        }
+        for (World.Body tree : world.trees()) {
+            if (tree.location.distanceTo(location) <= tree.radius) {
+                return treeInfo(tree);
+            }
+        }
+        return null;
+    }
+
+    public boolean canSenseTree(int id) {
+        World.Body tree = find(world.trees(), id);
+        return tree != null && canSensePartOfCircle(tree.location, tree.radius);
+    }
+
+    public TreeInfo senseTree(int id) throws GameActionException {
+        if (!canSenseTree(id)) {
+            throw new GameActionException(GameActionExceptionType.CANT_SENSE_THAT, "Can't sense given tree");
+        }
+        return treeInfo(find(world.trees(), id));
+    }
+
+    public RobotInfo[] senseNearbyRobots() {
+        return senseNearbyRobots(me.location, -1, null);
+    }
+
+    public RobotInfo[] senseNearbyRobots(float radius) {
+        return senseNearbyRobots(me.location, radius, null);
+    }
+
+    public RobotInfo[] senseNearbyRobots(float radius, Team team) {
+        return senseNearbyRobots(me.location, radius, team);
+    }
+
+    public RobotInfo[] senseNearbyRobots(MapLocation center, float radius, Team team) {
+        List<World.Body> found = nearby(world.robots(), center, radius == -1 ? me.type.sensorRadius : radius, team);
+        RobotInfo[] robots = new RobotInfo[found.size()];
+        for (int i = 0; i < robots.length; i++) {
+            World.Body robot = found.get(i);
+            robots[i] = new RobotInfo(robot.id, robot.team, robot.type, robot.location, robot.health, 0, 0);
+        }
+        return robots;
+    }
+
+    public TreeInfo[] senseNearbyTrees() {
+        return senseNearbyTrees(me.location, -1, null);
+    }
+
+    public TreeInfo[] senseNearbyTrees(float radius) {
+        return senseNearbyTrees(me.location, radius, null);
+    }
+
+    public TreeInfo[] senseNearbyTrees(float radius, Team team) {
+        return senseNearbyTrees(me.location, radius, team);
+    }
+
+    public TreeInfo[] senseNearbyTrees(MapLocation center, float radius, Team team) {
+        List<World.Body> found = nearby(world.trees(), center, radius == -1 ? me.type.sensorRadius : radius, team);
+        TreeInfo[] trees = new TreeInfo[found.size()];
+        for (int i = 0; i < trees.length; i++) {
+            trees[i] = treeInfo(found.get(i));
+        }
+        return trees;
+    }
+
+    public BulletInfo[] senseNearbyBullets() {
+        return senseNearbyBullets(me.location, -1);
+    }
+
+    public BulletInfo[] senseNearbyBullets(float radius) {
+        return senseNearbyBullets(me.location, radius);
+    }
+
+    public BulletInfo[] senseNearbyBullets(MapLocation center, float radius) {
+        List<World.Body> found = nearby(world.bullets(), center, radius == -1 ? me.type.bulletSightRadius : radius, null);
+        BulletInfo[] bullets = new BulletInfo[found.size()];
+        for (int i = 0; i < bullets.length; i++) {
+            World.Body bullet = found.get(i);
+            bullets[i] = new BulletInfo(bullet.id, bullet.location, bullet.dir, bullet.speed, bullet.damage);
+        }
+        return bullets;
+    }
+
+    /**
+     * Everything in `bodies` of the given team (or any team, if null) touching the circle, except us, closest first.
+     */
+    private List<World.Body> nearby(List<World.Body> bodies, MapLocation center, float radius, Team team) {
+        List<World.Body> found = new ArrayList<>();
+        for (World.Body body : bodies) {
+            if (body != me && (team == null || body.team == team) && body.location.distanceTo(center) - body.radius <= radius) {
+                found.add(body);
+            }
+        }
+        found.sort(Comparator.comparingDouble(body -> body.location.distanceTo(center)));
+        return found;
+    }
+
+    private static TreeInfo treeInfo(World.Body tree) {
+        return new TreeInfo(tree.id, tree.team, tree.location, tree.radius, tree.health, tree.containedBullets, null);
+    }
+
+    private static World.Body find(List<World.Body> bodies, int id) {
+        for (World.Body body : bodies) {
+            if (body.id == id) {
+                return body;
+            }
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Movement
+
+    public boolean canMove(Direction dir) {
+        return canMove(dir, me.type.strideRadius);
+    }
+
+    public boolean canMove(Direction dir, float distance) {
+        return canMove(me.location.add(dir, Math.min(distance, me.type.strideRadius)));
+    }
+
+    public boolean canMove(MapLocation center) {
+        if (me.location.distanceTo(center) > me.type.strideRadius + 0.0001f) {
+            return false;
+        }
+        // Scouts fly over trees.
+        return world.isOnMap(center, me.radius) && !world.isOccupied(center, me.radius, me, me.type != RobotType.SCOUT);
+    }
+
+    public void move(Direction dir) throws GameActionException {
+        move(dir, me.type.strideRadius);
+    }
+
+    public void move(Direction dir, float distance) throws GameActionException {
+        move(me.location.add(dir, Math.min(distance, me.type.strideRadius)));
+    }
+
+    public void move(MapLocation center) throws GameActionException {
+        if (me.moved) {
+            throw new GameActionException(GameActionExceptionType.NOT_ACTIVE, "This robot has already moved this turn");
+        }
+        if (!canMove(center)) {
+            throw new GameActionException(GameActionExceptionType.CANT_MOVE_THERE, "Cannot move to target location");
+        }
+        me.location = center;
+        me.moved = true;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Attacking
+
+    public boolean canFireSingleShot() {
+        return canFire(GameConstants.SINGLE_SHOT_COST);
+    }
+
+    public boolean canFireTriadShot() {
+        return canFire(GameConstants.TRIAD_SHOT_COST);
+    }
+
+    public boolean canFirePentadShot() {
+        return canFire(GameConstants.PENTAD_SHOT_COST);
+    }
+
+    public void fireSingleShot(Direction dir) throws GameActionException {
+        fire(dir, 1, 0, GameConstants.SINGLE_SHOT_COST);
+    }
+
+    public void fireTriadShot(Direction dir) throws GameActionException {
+        fire(dir, 3, GameConstants.TRIAD_SPREAD_DEGREES, GameConstants.TRIAD_SHOT_COST);
+    }
+
+    public void firePentadShot(Direction dir) throws GameActionException {
+        fire(dir, 5, GameConstants.PENTAD_SPREAD_DEGREES, GameConstants.PENTAD_SHOT_COST);
+    }
+
+    private boolean canFire(float cost) {
+        return me.type.canAttack() && me.type != RobotType.LUMBERJACK && !me.attacked && world.teamBullets(me.team) >= cost;
+    }
+
+    private void fire(Direction dir, int count, float spreadDegrees, float cost) throws GameActionException {
+        if (!canFire(cost)) {
+            throw new GameActionException(GameActionExceptionType.CANT_DO_THAT, "This robot can't fire that shot");
+        }
+        world.spendBullets(me.team, cost);
+        me.attacked = true;
+        for (int i = -(count / 2); i <= count / 2; i++) {
+            Direction bulletDir = dir.rotateLeftDegrees(i * spreadDegrees);
+            MapLocation start = me.location.add(bulletDir, me.radius + GameConstants.BULLET_SPAWN_OFFSET);
+            world.addBullet(start.x, start.y, bulletDir, me.type.bulletSpeed, me.type.attackPower);
+        }
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Trees
+
+    public boolean canWater(int id) {
+        World.Body tree = find(world.trees(), id);
+        return me.type == RobotType.GARDENER && !me.interacted && tree != null && canInteractWith(tree);
+    }
+
+    public boolean canWater(MapLocation location) {
+        World.Body tree = treeAt(location);
+        return tree != null && canWater(tree.id);
+    }
+
+    public boolean canWater() {
+        return me.type == RobotType.GARDENER && !me.interacted;
+    }
+
+    public void water(int id) throws GameActionException {
+        if (!canWater(id)) {
+            throw new GameActionException(GameActionExceptionType.CANT_DO_THAT, "Can't water that tree");
+        }
+        World.Body tree = find(world.trees(), id);
+        tree.health = Math.min(tree.maxHealth, tree.health + GameConstants.WATER_HEALTH_REGEN_RATE);
+        me.interacted = true;
+    }
+
+    public void water(MapLocation location) throws GameActionException {
+        World.Body tree = treeAt(location);
+        if (tree == null) {
+            throw new GameActionException(GameActionExceptionType.NO_TREE_THERE, "No tree at that location");
+        }
+        water(tree.id);
+    }
+
+    public boolean canShake(int id) {
+        World.Body tree = find(world.trees(), id);
+        return !me.interacted && tree != null && canInteractWith(tree);
+    }
+
+    public boolean canShake(MapLocation location) {
+        World.Body tree = treeAt(location);
+        return tree != null && canShake(tree.id);
+    }
+
+    public boolean canShake() {
+        return !me.interacted;
+    }
+
+    public void shake(int id) throws GameActionException {
+        if (!canShake(id)) {
+            throw new GameActionException(GameActionExceptionType.CANT_DO_THAT, "Can't shake that tree");
+        }
+        World.Body tree = find(world.trees(), id);
+        world.addBullets(me.team, tree.containedBullets);
+        tree.containedBullets = 0;
+        me.interacted = true;
+    }
+
+    public void shake(MapLocation location) throws GameActionException {
+        World.Body tree = treeAt(location);
+        if (tree == null) {
+            throw new GameActionException(GameActionExceptionType.NO_TREE_THERE, "No tree at that location");
+        }
+        shake(tree.id);
+    }
+
+    public boolean hasTreeBuildRequirements() {
+        return me.type == RobotType.GARDENER && isBuildReady() && world.teamBullets(me.team) >= GameConstants.BULLET_TREE_COST;
+    }
+
+    public boolean canPlantTree(Direction dir) {
+        if (!hasTreeBuildRequirements()) {
+            return false;
+        }
+        MapLocation location = me.location.add(dir, me.radius + GameConstants.BULLET_TREE_RADIUS + GameConstants.GENERAL_SPAWN_OFFSET);
+        return world.isOnMap(location, GameConstants.BULLET_TREE_RADIUS)
+                && !world.isOccupied(location, GameConstants.BULLET_TREE_RADIUS, me, true);
+    }
+
+    public void plantTree(Direction dir) throws GameActionException {
+        if (!canPlantTree(dir)) {
+            throw new GameActionException(GameActionExceptionType.CANT_DO_THAT, "Can't plant a tree there");
+        }
+        world.spendBullets(me.team, GameConstants.BULLET_TREE_COST);
+        world.plantFrom(me, dir);
+        me.buildCooldown = GameConstants.BULLET_TREE_CONSTRUCTION_COOLDOWN;
+    }
+
+    private boolean canInteractWith(World.Body tree) {
+        return me.location.distanceTo(tree.location) - tree.radius - me.radius <= GameConstants.INTERACTION_DIST_FROM_EDGE;
+    }
+
+    private World.Body treeAt(MapLocation location) {
+        for (World.Body tree : world.trees()) {
+            if (tree.location.distanceTo(location) <= tree.radius) {
+                return tree;
+            }
+        }
+        return null;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Building
+
+    public boolean hasRobotBuildRequirements(RobotType type) {
+        return type.spawnSource == me.type && isBuildReady() && world.teamBullets(me.team) >= type.bulletCost;
+    }
+
+    public boolean canBuildRobot(RobotType type, Direction dir) {
+        if (!hasRobotBuildRequirements(type)) {
+            return false;
+        }
+        MapLocation location = me.location.add(dir, me.radius + type.bodyRadius + GameConstants.GENERAL_SPAWN_OFFSET);
+        return world.isOnMap(location, type.bodyRadius) && !world.isOccupied(location, type.bodyRadius, me, true);
+    }
+
+    public void buildRobot(RobotType type, Direction dir) throws GameActionException {
+        if (!canBuildRobot(type, dir)) {
+            throw new GameActionException(GameActionExceptionType.CANT_DO_THAT, "Can't build that robot there");
+        }
+        world.spendBullets(me.team, type.bulletCost);
+        world.spawnFrom(me, type, dir);
+        me.buildCooldown = me.type.buildCooldownTurns;
+    }
+
+    public boolean canHireGardener(Direction dir) {
+        return canBuildRobot(RobotType.GARDENER, dir);
+    }
+
+    public void hireGardener(Direction dir) throws GameActionException {
+        buildRobot(RobotType.GARDENER, dir);
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Communication
+
+    public void broadcast(int channel, int data) throws GameActionException {
+        world.getBroadcasts(me.team)[checkChannel(channel)] = data;
+    }
+
+    public int readBroadcast(int channel) throws GameActionException {
+        return world.getBroadcasts(me.team)[checkChannel(channel)];
+    }
+
+    public void broadcastInt(int channel, int data) throws GameActionException {
+        broadcast(channel, data);
+    }
+
+    public int readBroadcastInt(int channel) throws GameActionException {
+        return readBroadcast(channel);
+    }
+
+    public void broadcastBoolean(int channel, boolean data) throws GameActionException {
+        broadcast(channel, data ? 1 : 0);
+    }
+
+    public boolean readBroadcastBoolean(int channel) throws GameActionException {
+        return readBroadcast(channel) != 0;
+    }
+
+    public void broadcastFloat(int channel, float data) throws GameActionException {
+        broadcast(channel, Float.floatToIntBits(data));
+    }
+
+    public float readBroadcastFloat(int channel) throws GameActionException {
+        return Float.intBitsToFloat(readBroadcast(channel));
+    }
+
+    private static int checkChannel(int channel) throws GameActionException {
+        if (channel < 0 || channel >= GameConstants.BROADCAST_MAX_CHANNELS) {
+            throw new GameActionException(GameActionExceptionType.CANT_DO_THAT, "Channel " + channel + " out of range");
+        }
+        return channel;
+    }
+}
@@ -0,0 +1,580 @@
+package rybots.sim;
+
+import battlecode.common.*;
+import rybots.bot.BaseBot;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A tiny stand-in for the engine, so bots can be run for thousands of turns in a unit test without playing a match.
+ * <p>
+ * The world is a rectangle of circles: robots, trees and bullets. Each round, bullets fly and hit whatever they
+ * cross first, trees decay, each team is paid its bullet income, and then every robot takes its turn in the order it
+ * was spawned. Robots spawned with `spawn` run the real rybots bot for their type through a `SimulatedRobotController`,
+ * while `spawnInert` robots just stand there as targets or obstacles.
+ * <p>
+ * It only models what our bots use, and only roughly: there's no victory points, lumberjacks, neutral trees
+ * containing robots, or bytecode counting. `BytecodeCounter` is pinned to a whole turn's worth, or whatever
+ * `setBytecodeBudget` says, so budget-sensitive code can be exercised. As in a real match, each robot loads its own
+ * copy of the rybots classes, so it gets its own statics, and is driven through reflection.
+ * <p>
+ * Every scenario needs at least one archon on each team, as the bots work out the map layout from them, which
+ * `withInertArchons` takes care of.
+ */
+public class World {
+
+    /**
+     * Anything in the world: a robot, a tree or a bullet.
+     */
+    public static class Body {
+        public final int id;
+        public final Team team;
+        public final RobotType type; // Null for trees and bullets.
+        public final boolean isTree;
+        public final float radius;
+        public MapLocation location;
+        public float health;
+        public float maxHealth;
+
+        // Robots
+        LoadedBot bot;
+        RobotController rc;
+        boolean controlled;
+        boolean moved;
+        boolean attacked;
+        boolean interacted;
+        int buildCooldown;
+
+        // Trees
+        public int containedBullets;
+
+        // Bullets
+        public Direction dir;
+        public float speed;
+        public float damage;
+
+        Body(int id, Team team, RobotType type, boolean isTree, MapLocation location, float radius, float health) {
+            this.id = id;
+            this.team = team;
+            this.type = type;
+            this.isTree = isTree;
+            this.location = location;
+            this.radius = radius;
+            this.health = health;
+            this.maxHealth = health;
+        }
+
+        public boolean isAlive() {
+            return health > 0;
+        }
+    }
+
+    /**
+     * Loads a fresh copy of the rybots classes for a single robot, as the engine does, so no two robots share any
+     * statics. Everything else, including the engine's classes and the simulator itself, comes from the test's own
+     * class loader.
+     */
+    private static class RobotClassLoader extends URLClassLoader {
+
+        private static final URL[] BOT_CLASSES = { BaseBot.class.getProtectionDomain().getCodeSource().getLocation() };
+
+        RobotClassLoader() {
+            super(BOT_CLASSES, World.class.getClassLoader());
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.startsWith("rybots.") || name.startsWith("rybots.sim.")) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> loaded = findLoadedClass(name);
+                if (loaded == null) {
+                    try {
+                        loaded = findClass(name);
+                    }
+                    catch (ClassNotFoundException e) {
+                        return super.loadClass(name, resolve);
+                    }
+                }
+                if (resolve) {
+                    resolveClass(loaded);
+                }
+                return loaded;
+            }
+        }
+    }
+
+    /**
+     * A robot's bot, loaded by its own RobotClassLoader. Its classes aren't the ones this class was compiled against,
+     * so it can only be driven through reflection.
+     */
+    static class LoadedBot {
+
+        private final Object bot;
+        private final Method sayHello;
+        private final Method newTurn;
+        private final Method takeTurn;
+        private final Method pinBytecodesLeft;
+
+        LoadedBot(RobotController rc) throws Exception {
+            ClassLoader loader = new RobotClassLoader();
+            Class<?> botClass = loader.loadClass(botClassName(rc.getType()));
+            Class<?> baseBot = loader.loadClass(BaseBot.class.getName());
+            sayHello = baseBot.getMethod("sayHello");
+            newTurn = baseBot.getMethod("newTurn");
+            takeTurn = baseBot.getMethod("takeTurn");
+            pinBytecodesLeft = loader.loadClass("rybots.utils.BytecodeCounter")
+                    .getMethod("debug_pinBytecodesLeft", int.class, int.class);
+
+            invoke(loader.loadClass("rybots.utils.Profiler").getMethod("debug_init", RobotController.class), null, rc);
+            bot = invoke(botClass.getConstructor(RobotController.class), rc);
+        }
+
+        private static String botClassName(RobotType type) {
+            switch (type) {
+                case ARCHON:
+                    return "rybots.bot.Archon";
+                case GARDENER:
+                    return "rybots.bot.Gardener";
+                case SOLDIER:
+                    return "rybots.bot.Soldier";
+                case SCOUT:
+                    return "rybots.bot.Scout";
+                default:
+                    throw new IllegalArgumentException("No bot for " + type);
+            }
+        }
+
+        void pinBytecodesLeft(int limit, int left) throws Exception {
+            invoke(pinBytecodesLeft, null, limit, left);
+        }
+
+        void sayHello() throws Exception {
+            invoke(sayHello, bot);
+        }
+
+        void takeTurn() throws Exception {
+            invoke(newTurn, bot);
+            invoke(takeTurn, bot);
+        }
+
+        /**
+         * Calls a method, rethrowing anything it throws as it is rather than wrapped up by reflection.
+         */
+        private static Object invoke(Method method, Object target, Object... args) throws Exception {
+            try {
+                return method.invoke(target, args);
+            }
+            catch (InvocationTargetException e) {
+                throw unwrap(e);
+            }
+        }
+
+        private static Object invoke(Constructor<?> constructor, Object... args) throws Exception {
+            try {
+                return constructor.newInstance(args);
+            }
+            catch (InvocationTargetException e) {
+                throw unwrap(e);
+            }
+        }
+
+        private static Exception unwrap(InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            return (Exception) cause;
+        }
+    }
+
+    private final float minX;
+    private final float minY;
+    private final float maxX;
+    private final float maxY;
+
+    private final List<Body> robots = new ArrayList<>();
+    private final List<Body> trees = new ArrayList<>();
+    private final List<Body> bullets = new ArrayList<>();
+    private final int[][] broadcasts = new int[2][GameConstants.BROADCAST_MAX_CHANNELS];
+    private final float[] teamBullets = { GameConstants.BULLETS_INITIAL_AMOUNT, GameConstants.BULLETS_INITIAL_AMOUNT };
+    private final List<Throwable> exceptions = new ArrayList<>();
+
+    private MapLocation[][] initialArchons;
+    private int round = 0;
+    private int nextId = 10000;
+    private int bytecodeBudget = -1;
+
+    /**
+     * @param width  the width of the map, starting at x = 0
+     * @param height the height of the map, starting at y = 0
+     */
+    public World(float width, float height) {
+        this(0, 0, width, height);
+    }
+
+    /**
+     * @param minX   the lowest x on the map
+     * @param minY   the lowest y on the map
+     * @param width  the width of the map
+     * @param height the height of the map
+     */
+    public World(float minX, float minY, float width, float height) {
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = minX + width;
+        this.maxY = minY + height;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Setting up scenarios
+
+    /**
+     * Adds an inert archon for each team, which is all most scenarios need alongside the robots being tested.
+     *
+     * @return this world, so it can be set up as it's created
+     */
+    public World withInertArchons(float teamAX, float teamAY, float teamBX, float teamBY) {
+        spawnInert(RobotType.ARCHON, Team.A, teamAX, teamAY);
+        spawnInert(RobotType.ARCHON, Team.B, teamBX, teamBY);
+        return this;
+    }
+
+    /**
+     * Adds a robot run by its rybots bot.
+     */
+    public Body spawn(RobotType type, Team team, float x, float y) {
+        Body robot = spawnInert(type, team, x, y);
+        robot.controlled = true;
+        return robot;
+    }
+
+    /**
+     * Adds a robot which never does anything.
+     */
+    public Body spawnInert(RobotType type, Team team, float x, float y) {
+        Body robot = new Body(nextId++, team, type, false, new MapLocation(x, y), type.bodyRadius, type.maxHealth);
+        robot.rc = SimulatedRobotController.create(this, robot);
+        robots.add(robot);
+        return robot;
+    }
+
+    /**
+     * Adds a tree. Use `Team.NEUTRAL` for the map's own trees.
+     */
+    public Body addTree(Team team, float x, float y, float radius, float health) {
+        Body tree = new Body(nextId++, team, null, true, new MapLocation(x, y), radius, health);
+        trees.add(tree);
+        return tree;
+    }
+
+    /**
+     * Adds a bullet, which will start flying next round.
+     */
+    public Body addBullet(float x, float y, Direction dir, float speed, float damage) {
+        Body bullet = new Body(nextId++, Team.NEUTRAL, null, false, new MapLocation(x, y), 0, 1);
+        bullet.dir = dir;
+        bullet.speed = speed;
+        bullet.damage = damage;
+        bullets.add(bullet);
+        return bullet;
+    }
+
+    /**
+     * Caps how many bytecodes `BytecodeCounter` says every robot has left, or -1 for the robot type's full limit.
+     */
+    public void setBytecodeBudget(int budget) {
+        bytecodeBudget = budget;
+    }
+
+    public void setTeamBullets(Team team, float amount) {
+        teamBullets[team.ordinal()] = amount;
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Running
+
+    /**
+     * Plays a number of rounds.
+     */
+    public void run(int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            step();
+        }
+    }
+
+    /**
+     * Plays a single round.
+     */
+    public void step() {
+        if (initialArchons == null) {
+            initialArchons = new MapLocation[][] { archonLocations(Team.A), archonLocations(Team.B) };
+        }
+        round++;
+
+        moveBullets();
+        for (Body tree : trees) {
+            if (tree.team != Team.NEUTRAL) {
+                tree.health -= GameConstants.BULLET_TREE_DECAY_RATE;
+            }
+        }
+        removeDead(trees);
+        payIncome(Team.A);
+        payIncome(Team.B);
+
+        // Take a copy, as robots may be built or destroyed during the round.
+        for (Body robot : new ArrayList<>(robots)) {
+            if (robot.isAlive()) {
+                takeTurn(robot);
+            }
+        }
+        removeDead(robots);
+        removeDead(trees);
+    }
+
+    private void takeTurn(Body robot) {
+        robot.moved = false;
+        robot.attacked = false;
+        robot.interacted = false;
+        if (robot.buildCooldown > 0) {
+            robot.buildCooldown--;
+        }
+        if (!robot.controlled) {
+            return;
+        }
+
+        int limit = robot.type.bytecodeLimit;
+        try {
+            if (robot.bot == null) {
+                robot.bot = new LoadedBot(robot.rc);
+                robot.bot.sayHello();
+            }
+            robot.bot.pinBytecodesLeft(limit, bytecodeBudget >= 0 ? bytecodeBudget : limit);
+            robot.bot.takeTurn();
+        }
+        catch (Exception e) {
+            exceptions.add(e);
+        }
+    }
+
+    private void moveBullets() {
+        for (Body bullet : bullets) {
+            MapLocation start = bullet.location;
+            float dirX = bullet.dir.getDeltaX(1);
+            float dirY = bullet.dir.getDeltaY(1);
+
+            // Find the first robot or tree the bullet's path crosses this round.
+            Body hit = null;
+            float hitDistance = bullet.speed;
+            for (Body target : robots) {
+                float distance = hitDistance(target, start, dirX, dirY);
+                if (distance <= hitDistance) {
+                    hit = target;
+                    hitDistance = distance;
+                }
+            }
+            for (Body target : trees) {
+                float distance = hitDistance(target, start, dirX, dirY);
+                if (distance <= hitDistance) {
+                    hit = target;
+                    hitDistance = distance;
+                }
+            }
+
+            if (hit != null) {
+                hit.health -= bullet.damage;
+                bullet.health = 0;
+                continue;
+            }
+            bullet.location = new MapLocation(start.x + dirX * bullet.speed, start.y + dirY * bullet.speed);
+            if (!isOnMap(bullet.location, 0)) {
+                bullet.health = 0;
+            }
+        }
+        removeDead(bullets);
+        removeDead(robots);
+        removeDead(trees);
+    }
+
+    /**
+     * @return how far along its path a bullet first touches a body, or infinity if it never does
+     */
+    private static float hitDistance(Body target, MapLocation start, float dirX, float dirY) {
+        float toX = target.location.x - start.x;
+        float toY = target.location.y - start.y;
+        float along = toX * dirX + toY * dirY;
+        float acrossX = toX - dirX * along;
+        float acrossY = toY - dirY * along;
+        float acrossSquared = acrossX * acrossX + acrossY * acrossY;
+        float radiusSquared = target.radius * target.radius;
+        if (acrossSquared > radiusSquared) {
+            return Float.POSITIVE_INFINITY;
+        }
+        float halfChord = (float) Math.sqrt(radiusSquared - acrossSquared);
+        if (along + halfChord < 0) {
+            return Float.POSITIVE_INFINITY; // The body is behind the bullet.
+        }
+        return Math.max(0, along - halfChord);
+    }
+
+    private void payIncome(Team team) {
+        int index = team.ordinal();
+        float income = Math.max(0, GameConstants.ARCHON_BULLET_INCOME - GameConstants.BULLET_INCOME_UNIT_PENALTY * teamBullets[index]);
+        for (Body tree : trees) {
+            if (tree.team == team) {
+                income += tree.health * GameConstants.BULLET_TREE_BULLET_PRODUCTION_RATE;
+            }
+        }
+        teamBullets[index] += income;
+    }
+
+    private static void removeDead(List<Body> bodies) {
+        bodies.removeIf(body -> !body.isAlive());
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Looking at the world, for assertions
+
+    public int getRound() {
+        return round;
+    }
+
+    public List<Body> getRobots() {
+        return Collections.unmodifiableList(robots);
+    }
+
+    public List<Body> getTrees() {
+        return Collections.unmodifiableList(trees);
+    }
+
+    /**
+     * @return the simulated RobotController for a robot, for unit testing helpers without a bot
+     */
+    public RobotController controllerOf(Body robot) {
+        return robot.rc;
+    }
+
+    /**
+     * @return every exception thrown out of a bot's turn so far
+     */
+    public List<Throwable> getExceptions() {
+        return Collections.unmodifiableList(exceptions);
+    }
+
+    public int countTrees(Team team) {
+        int count = 0;
+        for (Body tree : trees) {
+            if (tree.team == team) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public float getTeamBullets(Team team) {
+        return teamBullets[team.ordinal()];
+    }
+
+    public int readBroadcast(Team team, int channel) {
+        return broadcasts[team.ordinal()][channel];
+    }
+
+    // ------------------------------------------------------------------------------------------------------------
+    // Used by SimulatedRobotController
+
+    MapLocation[] getInitialArchonLocations(Team team) {
+        if (initialArchons == null) {
+            return archonLocations(team);
+        }
+        return initialArchons[team.ordinal()].clone();
+    }
+
+    private MapLocation[] archonLocations(Team team) {
+        List<MapLocation> locations = new ArrayList<>();
+        for (Body robot : robots) {
+            if (robot.team == team && robot.type == RobotType.ARCHON) {
+                locations.add(robot.location);
+            }
+        }
+        return locations.toArray(new MapLocation[0]);
+    }
+
+    int[] getBroadcasts(Team team) {
+        return broadcasts[team.ordinal()];
+    }
+
+    float teamBullets(Team team) {
+        return teamBullets[team.ordinal()];
+    }
+
+    void spendBullets(Team team, float amount) {
+        teamBullets[team.ordinal()] -= amount;
+    }
+
+    void addBullets(Team team, float amount) {
+        teamBullets[team.ordinal()] += amount;
+    }
+
+    List<Body> robots() {
+        return robots;
+    }
+
+    List<Body> trees() {
+        return trees;
+    }
+
+    List<Body> bullets() {
+        return bullets;
+    }
+
+    Body spawnFrom(Body parent, RobotType type, Direction dir) {
+        MapLocation location = parent.location.add(dir, parent.radius + type.bodyRadius + GameConstants.GENERAL_SPAWN_OFFSET);
+        return spawn(type, parent.team, location.x, location.y);
+    }
+
+    Body plantFrom(Body parent, Direction dir) {
+        MapLocation location = parent.location.add(dir, parent.radius + GameConstants.BULLET_TREE_RADIUS + GameConstants.GENERAL_SPAWN_OFFSET);
+        Body tree = addTree(parent.team, location.x, location.y, GameConstants.BULLET_TREE_RADIUS,
+                GameConstants.BULLET_TREE_MAX_HEALTH * GameConstants.PLANTED_UNIT_STARTING_HEALTH_FRACTION);
+        tree.maxHealth = GameConstants.BULLET_TREE_MAX_HEALTH;
+        return tree;
+    }
+
+    int getRoundNum() {
+        return round;
+    }
+
+    /**
+     * @return true if the whole circle lies within the map
+     */
+    boolean isOnMap(MapLocation center, float radius) {
+        return center.x - radius >= minX && center.x + radius <= maxX && center.y - radius >= minY && center.y + radius <= maxY;
+    }
+
+    /**
+     * @return true if the circle overlaps any robot other than `except`, or any tree if `includeTrees` is set
+     */
+    boolean isOccupied(MapLocation center, float radius, Body except, boolean includeTrees) {
+        for (Body robot : robots) {
+            if (robot != except && robot.location.distanceTo(center) < robot.radius + radius) {
+                return true;
+            }
+        }
+        if (includeTrees) {
+            for (Body tree : trees) {
+                if (tree.location.distanceTo(center) < tree.radius + radius) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
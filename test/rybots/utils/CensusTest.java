@@ -0,0 +1,89 @@
+package rybots.utils;
+
+import battlecode.common.GameActionException;
+import battlecode.common.RobotType;
+import battlecode.common.Team;
+import org.junit.Before;
+import org.junit.Test;
+import rybots.sim.World;
+
+import static org.junit.Assert.*;
+
+public class CensusTest {
+
+    private World world;
+    private Census soldier;
+    private Census gardener;
+    private Census otherGardener;
+
+    @Before
+    public void setUp() {
+        world = new World(100, 100).withInertArchons(10, 10, 90, 90);
+        soldier = censusFor(RobotType.SOLDIER, 30);
+        gardener = censusFor(RobotType.GARDENER, 50);
+        otherGardener = censusFor(RobotType.GARDENER, 70);
+        world.step();
+    }
+
+    @Test
+    public void readsLastRoundsCountsWhileThisRoundsAreGoingUp() throws GameActionException {
+        countEveryoneIn();
+        assertEquals(1, soldier.countSoFar(RobotType.SOLDIER));
+        assertEquals(2, soldier.countSoFar(RobotType.GARDENER));
+        assertEquals("nothing was counted last round", 0, soldier.count(RobotType.GARDENER));
+
+        world.step();
+        gardener.countIn(world.getRound());
+        assertEquals(1, soldier.countSoFar(RobotType.GARDENER));
+        assertEquals(2, soldier.count(RobotType.GARDENER));
+        assertEquals(1, soldier.count(RobotType.SOLDIER));
+    }
+
+    @Test
+    public void startsAgainFromZeroOverStaleCounts() throws GameActionException {
+        countEveryoneIn();
+        world.step();
+        countEveryoneIn();
+
+        // Round 3 uses round 1's counters, which still hold round 1's counts. The soldier has been lost.
+        world.step();
+        gardener.countIn(world.getRound());
+        otherGardener.countIn(world.getRound());
+        assertEquals(0, gardener.countSoFar(RobotType.SOLDIER));
+        assertEquals(2, gardener.countSoFar(RobotType.GARDENER));
+
+        world.step();
+        assertEquals("lost soldier still counted", 0, gardener.count(RobotType.SOLDIER));
+        assertEquals(2, gardener.count(RobotType.GARDENER));
+    }
+
+    @Test
+    public void countsInRobotsBuiltThisRound() throws GameActionException {
+        countEveryoneIn();
+        gardener.countBuilt(RobotType.SCOUT, world.getRound());
+
+        world.step();
+        assertEquals(1, soldier.count(RobotType.SCOUT));
+    }
+
+    @Test
+    public void recordsTheTreeCount() throws GameActionException {
+        world.addTree(Team.A, 40, 40, 1, 50);
+        world.addTree(Team.A, 60, 40, 1, 50);
+        world.addTree(Team.B, 60, 60, 1, 50);
+        countEveryoneIn();
+
+        world.step();
+        assertEquals(2, soldier.getTreeCount());
+    }
+
+    private Census censusFor(RobotType type, float x) {
+        return new Census(world.controllerOf(world.spawnInert(type, Team.A, x, 50)));
+    }
+
+    private void countEveryoneIn() throws GameActionException {
+        soldier.countIn(world.getRound());
+        gardener.countIn(world.getRound());
+        otherGardener.countIn(world.getRound());
+    }
+}
@@ -0,0 +1,44 @@
+package rybots.utils;
+
+import battlecode.common.MapLocation;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CommsTest {
+
+    @Test
+    public void packsAndUnpacksLocations() {
+        MapLocation packed = Comms.unpackLocation(Comms.packLocation(new MapLocation(123.45f, 678.9f)));
+        assertEquals(123.45f, packed.x, 0.02f);
+        assertEquals(678.9f, packed.y, 0.02f);
+        assertNull("nothing packed", Comms.unpackLocation(0));
+        assertNotEquals("origin packed as nothing", 0, Comms.packLocation(new MapLocation(0, 0)));
+
+        assertEquals(new MapLocation(124, 678), Comms.unpackCoarseLocation(Comms.packCoarseLocation(new MapLocation(123.6f, 678.4f))));
+    }
+
+    @Test
+    public void stampsValuesWithTheirRound() {
+        int location = Comms.packCoarseLocation(new MapLocation(1023, 1023));
+        int stamped = Comms.stamp(2999, location);
+        assertEquals(2999, Comms.roundOf(stamped));
+        assertEquals(location, Comms.valueOf(stamped));
+        assertEquals(new MapLocation(1023, 1023), Comms.unpackCoarseLocation(stamped));
+    }
+
+    @Test
+    public void layoutFitsWithoutOverlapping() {
+        Comms.debug_checkLayout();
+    }
+
+    @Test
+    public void clampsLocationsWhichWouldWrapRound() {
+        MapLocation packed = Comms.unpackLocation(Comms.packLocation(new MapLocation(-12.5f, 1500)));
+        assertEquals(0, packed.x, 0.02f);
+        assertEquals(1024, packed.y, 0.05f);
+
+        MapLocation coarse = Comms.unpackCoarseLocation(Comms.packCoarseLocation(new MapLocation(-3, 1100)));
+        assertEquals(new MapLocation(0, 1023), coarse);
+    }
+}
@@ -0,0 +1,38 @@
+package rybots.utils;
+
+import battlecode.common.Direction;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DirectionsTest {
+
+    @Test
+    public void indexesNegativeAnglesFromTheTopOfTheTable() {
+        assertEquals(0, Directions.indexOf(Direction.EAST));
+        assertEquals(Directions.COUNT / 4, Directions.indexOf(Direction.NORTH));
+        assertEquals(3 * Directions.COUNT / 4, Directions.indexOf(Direction.SOUTH));
+        assertEquals(Directions.COUNT - 1, Directions.indexOf(new Direction((float) Math.toRadians(-Directions.STEP_DEGREES))));
+        assertEquals(0, Directions.indexOf(new Direction((float) Math.toRadians(-Directions.STEP_DEGREES / 4))));
+    }
+
+    @Test
+    public void wrapsIndicesOutsideTheTable() {
+        assertSame(Directions.get(Directions.COUNT - 1), Directions.get(-1));
+        assertSame(Directions.get(Directions.COUNT - 1), Directions.get(-Directions.COUNT - 1));
+        assertSame(Directions.get(0), Directions.get(Directions.COUNT));
+        assertSame(Directions.get(5), Directions.get(3 * Directions.COUNT + 5));
+        assertEquals(Directions.cos(10), Directions.cos(10 - 2 * Directions.COUNT), 0);
+        assertEquals(Directions.sin(10), Directions.sin(10 - 2 * Directions.COUNT), 0);
+    }
+
+    @Test
+    public void tableMatchesTheDirectionsItHolds() {
+        for (int i = -Directions.COUNT; i < 2 * Directions.COUNT; i++) {
+            Direction direction = Directions.get(i);
+            assertEquals(Math.floorMod(i, Directions.COUNT), Directions.indexOf(direction));
+            assertEquals(Math.cos(direction.radians), Directions.cos(i), 1e-6);
+            assertEquals(Math.sin(direction.radians), Directions.sin(i), 1e-6);
+        }
+    }
+}
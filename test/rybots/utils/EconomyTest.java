@@ -0,0 +1,92 @@
+package rybots.utils;
+
+import battlecode.common.GameActionException;
+import battlecode.common.RobotController;
+import battlecode.common.RobotType;
+import battlecode.common.Team;
+import org.junit.Before;
+import org.junit.Test;
+import rybots.sim.World;
+
+import static org.junit.Assert.*;
+
+public class EconomyTest {
+
+    private World world;
+    private RobotController rc;
+    private Economy economy;
+    private float bank;
+
+    @Before
+    public void setUp() throws GameActionException {
+        world = new World(100, 100).withInertArchons(10, 10, 90, 90);
+        rc = world.controllerOf(world.spawnInert(RobotType.ARCHON, Team.A, 30, 30));
+        economy = new Economy(rc);
+        bank = 350;
+        world.step();
+        world.setTeamBullets(Team.A, bank);
+        economy.update();
+    }
+
+    @Test
+    public void keepsBuildingGardensUntilClearlyInSurplus() throws GameActionException {
+        holdBank(100);
+        assertTrue(economy.shouldBuildGardens());
+
+        rampBankTo(450);
+        assertTrue("switched to soldiers short of the surplus", economy.shouldBuildGardens());
+
+        rampBankTo(600);
+        assertFalse(economy.shouldBuildGardens());
+        assertFalse(Economy.readBuildGardens(rc));
+    }
+
+    @Test
+    public void keepsBuildingSoldiersUntilClearlyInDeficit() throws GameActionException {
+        rampBankTo(600);
+        assertFalse(economy.shouldBuildGardens());
+
+        rampBankTo(250);
+        assertFalse("switched back to gardens short of the deficit", economy.shouldBuildGardens());
+
+        rampBankTo(150);
+        assertTrue(economy.shouldBuildGardens());
+
+        rampBankTo(400);
+        assertTrue("flipped straight back to soldiers", economy.shouldBuildGardens());
+    }
+
+    @Test
+    public void countsSpendingAsSpendingRatherThanLostIncome() throws GameActionException {
+        holdBank(100);
+        for (int i = 0; i < 100; i++) {
+            Economy.recordSpend(rc, 10);
+            bank -= 10;
+            holdBank(1);
+        }
+        assertEquals("spending counted as lost income", 0, economy.getIncome(), 0.1f);
+        assertEquals(10, economy.getSpending(), 0.1f);
+        assertEquals(-10, economy.getNetIncome(), 0.1f);
+    }
+
+    /**
+     * Keeps the bank where it is, over a number of rounds.
+     */
+    private void holdBank(int rounds) throws GameActionException {
+        for (int i = 0; i < rounds; i++) {
+            world.step();
+            world.setTeamBullets(Team.A, bank);
+            economy.update();
+        }
+    }
+
+    /**
+     * Moves the bank towards a target a bullet a round, so the income stays steady and small.
+     */
+    private void rampBankTo(float target) throws GameActionException {
+        while (bank != target) {
+            bank += bank < target ? 1 : -1;
+            holdBank(1);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package rybots.utils;
+
+import battlecode.common.GameActionException;
+import battlecode.common.RobotType;
+import battlecode.common.Team;
+import org.junit.Before;
+import org.junit.Test;
+import rybots.sim.World;
+
+import static org.junit.Assert.*;
+
+public class LeaderElectionTest {
+
+    private World world;
+    private LeaderElection first;
+    private LeaderElection second;
+
+    @Before
+    public void setUp() {
+        world = new World(100, 100);
+        first = electionFor(world.spawnInert(RobotType.ARCHON, Team.A, 20, 20));
+        second = electionFor(world.spawnInert(RobotType.ARCHON, Team.A, 80, 80));
+        world.spawnInert(RobotType.ARCHON, Team.B, 50, 90);
+        world.step();
+    }
+
+    @Test
+    public void firstToUpdateLeadsWhileItKeepsUpdating() throws GameActionException {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(first.update(world.getRound()));
+            assertFalse(second.update(world.getRound()));
+            world.step();
+        }
+        assertTrue(first.isLeader());
+        assertFalse(second.isLeader());
+    }
+
+    @Test
+    public void takesOverOnlyOnceTheLeaderHasTimedOut() throws GameActionException {
+        first.update(world.getRound());
+        int lastHeartbeat = world.getRound();
+
+        // The leader can miss a couple of rounds, such as when it runs out of bytecodes.
+        world.step();
+        assertFalse(second.update(world.getRound()));
+        world.step();
+        assertFalse(second.update(world.getRound()));
+
+        world.step();
+        assertEquals(3, world.getRound() - lastHeartbeat);
+        assertTrue("didn't take over from a silent leader", second.update(world.getRound()));
+
+        // When the old leader turns up again, it follows.
+        assertFalse(first.update(world.getRound()));
+        world.step();
+        assertTrue(second.update(world.getRound()));
+        assertFalse(first.update(world.getRound()));
+    }
+
+    private LeaderElection electionFor(World.Body robot) {
+        return new LeaderElection(world.controllerOf(robot), Comms.ARCHON_LEADER_CHANNEL);
+    }
+}
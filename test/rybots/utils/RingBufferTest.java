@@ -0,0 +1,98 @@
+package rybots.utils;
+
+import battlecode.common.GameActionException;
+import battlecode.common.RobotController;
+import battlecode.common.RobotType;
+import battlecode.common.Team;
+import org.junit.Before;
+import org.junit.Test;
+import rybots.sim.World;
+
+import static org.junit.Assert.*;
+
+public class RingBufferTest {
+
+    private static final int CAPACITY = 4;
+    private static final int MAX_AGE  = 10;
+
+    private World world;
+    private RingBuffer writer;
+    private RingBuffer reader;
+    private final int[] out = new int[8];
+
+    @Before
+    public void setUp() {
+        world = new World(100, 100).withInertArchons(10, 10, 90, 90);
+        writer = ringFor(world.spawnInert(RobotType.SCOUT, Team.A, 40, 40));
+        reader = ringFor(world.spawnInert(RobotType.SOLDIER, Team.A, 60, 60));
+        world.step();
+    }
+
+    @Test
+    public void readsOnlyWhatsNewOldestFirst() throws GameActionException {
+        writer.push(1);
+        writer.push(2);
+        assertRead(1, 2);
+        assertRead();
+
+        world.step();
+        writer.push(3);
+        assertRead(3);
+    }
+
+    @Test
+    public void stampsEntriesWithTheRoundTheyWerePushed() throws GameActionException {
+        world.run(4);
+        writer.push(7);
+
+        assertEquals(1, reader.readNew(out));
+        assertEquals(7, Comms.valueOf(out[0]));
+        assertEquals(world.getRound(), Comms.roundOf(out[0]));
+    }
+
+    @Test
+    public void skipsEntriesOlderThanMaxAge() throws GameActionException {
+        writer.push(1);
+        world.run(MAX_AGE);
+        writer.push(2);
+        world.step();
+        writer.push(3);
+
+        // Entry 1 is now MAX_AGE + 1 rounds old.
+        assertRead(2, 3);
+    }
+
+    @Test
+    public void jumpsToTheOldestEntryNotOverwritten() throws GameActionException {
+        for (int value = 1; value <= CAPACITY + 2; value++) {
+            writer.push(value);
+        }
+        assertRead(3, 4, 5, 6);
+    }
+
+    @Test
+    public void leavesWhatDoesntFitForNextTime() throws GameActionException {
+        writer.push(1);
+        writer.push(2);
+        writer.push(3);
+
+        int[] small = new int[2];
+        assertEquals(2, reader.readNew(small));
+        assertEquals(1, Comms.valueOf(small[0]));
+        assertEquals(2, Comms.valueOf(small[1]));
+        assertRead(3);
+    }
+
+    private RingBuffer ringFor(World.Body robot) {
+        RobotController rc = world.controllerOf(robot);
+        return new RingBuffer(rc, Comms.ENEMY_SIGHTINGS_CURSOR_CHANNEL, Comms.ENEMY_SIGHTINGS_CHANNEL, CAPACITY, MAX_AGE);
+    }
+
+    private void assertRead(int... expected) throws GameActionException {
+        int count = reader.readNew(out);
+        assertEquals("entries read", expected.length, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(expected[i], Comms.valueOf(out[i]));
+        }
+    }
+}